@@ -0,0 +1,61 @@
+package com.secrux.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.instrument.Instrumentation;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.secrux.instrumentation.SecruxAgent;
+import com.secrux.instrumentation.hooks.HookConfig;
+
+import net.bytebuddy.agent.ByteBuddyAgent;
+
+/**
+ * Attaches {@link SecruxAgent} to the forked benchmark JVM before any scenario is built.
+ * JMH forks a fresh JVM per parameter value, so each configuration is measured in isolation:
+ * {@code none} runs uninstrumented, {@code advice} weaves only the built-in advice and
+ * {@code hooks} adds the full hook set from {@value HookConfig#DEFAULT_FILE}.
+ */
+@State(Scope.Benchmark)
+public class AgentConfiguration {
+
+    /** Overrides where the {@code hooks} configuration reads its hook file from. */
+    static final String HOOKS_PROPERTY = "secrux.benchmark.hooks";
+
+    @Param({"none", "advice", "hooks"})
+    public String agent;
+
+    @Setup
+    public void attach() throws IOException {
+        if ("none".equals(agent)) {
+            return;
+        }
+        String options = "advice".equals(agent)
+                ? "config=none"
+                : "config=" + locateHooks() + ",traceDir=" + Files.createTempDirectory("secrux-bench-trace");
+        Instrumentation instrumentation = ByteBuddyAgent.install();
+        SecruxAgent.agentmain(options, instrumentation);
+    }
+
+    private static Path locateHooks() {
+        String explicit = System.getProperty(HOOKS_PROPERTY);
+        if (explicit != null) {
+            return Paths.get(explicit).toAbsolutePath();
+        }
+        // Benchmarks are usually launched from the module directory; the hook file lives in the project root.
+        for (Path candidate : new Path[] {Paths.get(HookConfig.DEFAULT_FILE), Paths.get("..", HookConfig.DEFAULT_FILE)}) {
+            if (Files.isRegularFile(candidate)) {
+                return candidate.toAbsolutePath();
+            }
+        }
+        throw new UncheckedIOException(new IOException(
+                HookConfig.DEFAULT_FILE + " not found; point -D" + HOOKS_PROPERTY + " at it"));
+    }
+}
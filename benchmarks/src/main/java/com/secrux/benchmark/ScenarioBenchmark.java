@@ -0,0 +1,84 @@
+package com.secrux.benchmark;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.secrux.aliasing.AliasingAmbiguity;
+import com.secrux.dynamic.DynamicProxyShowcase;
+import com.secrux.lambda.LambdaLabyrinth;
+import com.secrux.reflection.ReflectionMaze;
+import com.secrux.unreachable.UnreachableTrap;
+
+/**
+ * Calls each scenario directly, bypassing the web layer, with the same default inputs the controllers use.
+ * Scenarios whose default path spawns a process measure that spawn too, exactly as the endpoint would. The dynamic
+ * proxy runs each input as a command, and its defaults are not commands, so it gets two {@code echo} invocations.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.attach.allowAttachSelf=true")
+public class ScenarioBenchmark {
+
+    // Distinct, so the first call takes the regular delegate and only the second one the fallback.
+    private static final String PROXY_INPUT = "echo proxy";
+    private static final String PROXY_FALLBACK = "echo fallback";
+
+    @State(Scope.Benchmark)
+    public static class Scenarios {
+
+        ReflectionMaze reflectionMaze;
+        DynamicProxyShowcase dynamicProxyShowcase;
+        LambdaLabyrinth lambdaLabyrinth;
+        AliasingAmbiguity aliasingAmbiguity;
+        UnreachableTrap unreachableTrap;
+
+        // Taking the agent state orders its setup first, so scenario classes load after the agent is attached.
+        @Setup
+        public void create(AgentConfiguration agent) {
+            reflectionMaze = new ReflectionMaze();
+            dynamicProxyShowcase = new DynamicProxyShowcase();
+            lambdaLabyrinth = new LambdaLabyrinth();
+            aliasingAmbiguity = new AliasingAmbiguity();
+            unreachableTrap = new UnreachableTrap();
+        }
+    }
+
+    @Benchmark
+    public String reflectionMaze(Scenarios scenarios) throws Exception {
+        return scenarios.reflectionMaze.run(Collections.emptyList());
+    }
+
+    @Benchmark
+    public List<String> dynamicProxy(Scenarios scenarios) throws Exception {
+        return scenarios.dynamicProxyShowcase.run(PROXY_INPUT, PROXY_FALLBACK);
+    }
+
+    @Benchmark
+    public List<String> lambdaLabyrinth(Scenarios scenarios) throws Exception {
+        return scenarios.lambdaLabyrinth.run(null);
+    }
+
+    @Benchmark
+    public List<String> aliasingAmbiguity(Scenarios scenarios) {
+        return scenarios.aliasingAmbiguity.run();
+    }
+
+    @Benchmark
+    public List<String> unreachableTrap(Scenarios scenarios) {
+        return scenarios.unreachableTrap.run();
+    }
+}
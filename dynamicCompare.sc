@@ -1,40 +1,74 @@
-import java.nio.file.{Files, Paths}
+import java.nio.file.{Files, Path, Paths}
+import scala.jdk.CollectionConverters._
+import scala.sys.process._
+import io.shiftleft.codepropertygraph.generated.nodes.{Call, Method, StoredNode, TypeDecl}
 
-@main def dynamicCompare(srcDir: String, traceFile: String, compareDir: String): Unit = {
+// Re-imports only when the source content hash changed and applies only trace edges not yet in the saved project.
+// IncrementalCompare (plain JDK code, so target/classes is enough) keeps that state under <compareDir>/state and writes the edge-level diff.
+@main def dynamicCompare(srcDir: String, traceFile: String, compareDir: String,
+                         toolClasspath: String = "target/classes", fullDumps: Boolean = false): Unit = {
   val srcPath     = Paths.get(srcDir).toAbsolutePath
   val comparePath = Paths.get(compareDir).toAbsolutePath
-  val beforeDir   = comparePath.resolve("before")
-  val afterDir    = comparePath.resolve("after")
+  Files.createDirectories(comparePath)
+  val tool = Seq("java", "-cp", toolClasspath, "com.secrux.instrumentation.trace.IncrementalCompare")
 
-  if (Files.exists(comparePath)) {
-    better.files.File(comparePath).delete(true)
+  val existing = workspace.projects.filter(_.inputPath == srcPath.toString).map(_.name).toList
+  val fresh    = if (existing.isEmpty) Seq("fresh") else Nil
+  val Array(mode, newEdges) =
+    (tool ++ Seq("plan", srcPath.toString, traceFile, comparePath.toString) ++ fresh).!!.trim.split(" ")
+
+  if (mode == "import") {
+    existing.foreach(name => workspace.removeProject(name))
+    println(s"[compare] importing code from $srcPath ...")
+    importCode.java(srcPath.toString)
+    save
+  } else {
+    println(s"[compare] sources unchanged, reusing project ${existing.head}")
+    open(existing.head)
+  }
+
+  val deltaTrace = comparePath.resolve("delta-trace.ndjson")
+  if (newEdges.toInt > 0) {
+    val traced  = "\"edgeType\":\"([^\"]+)\"".r
+    val types   = Files.readAllLines(deltaTrace).asScala.flatMap(line => traced.findFirstMatchIn(line).map(_.group(1))).toSet
+    val tracked = (label: String) => label == "CALL" || label == "DYNAMIC_TYPE" || label.startsWith("REFLECT_") || types(label)
+
+    snapshot(comparePath.resolve("edges-before.tsv"), tracked)
+    println(s"[compare] applying $newEdges new trace edges from $traceFile ...")
+    opts.dynamicinvokelink.traceFile = deltaTrace.toString
+    opts.dynamicinvokelink.defaultEdgeType = io.shiftleft.codepropertygraph.generated.EdgeTypes.REACHING_DEF
+    opts.dynamicinvokelink.createTags = true
+    run.dynamicinvokelink
+    save
+    snapshot(comparePath.resolve("edges-after.tsv"), tracked)
+  } else {
+    println("[compare] no new trace edges, overlay skipped")
+  }
+
+  if (fullDumps) {
+    println(s"[compare] dumping graphs to ${comparePath.resolve("after")} ...")
+    opts.dumpcpg14.outDir = comparePath.resolve("after").toString
+    run.dumpcpg14
   }
-  Files.createDirectories(beforeDir)
-  Files.createDirectories(afterDir)
-
-  workspace.projects
-    .filter(_.inputPath == srcPath.toString)
-    .map(_.name)
-    .foreach(name => workspace.removeProject(name))
-
-  println(s"[compare] importing code from $srcPath ...")
-  importCode.java(srcPath.toString)
-
-  println(s"[compare] dumping baseline graphs to $beforeDir ...")
-  opts.dumpcpg14.outDir = beforeDir.toString
-  run.dumpcpg14
-  save
-
-  println(s"[compare] applying dynamic overlay from $traceFile ...")
-  opts.dynamicinvokelink.traceFile = traceFile
-  opts.dynamicinvokelink.defaultEdgeType = io.shiftleft.codepropertygraph.generated.EdgeTypes.REACHING_DEF
-  opts.dynamicinvokelink.createTags = true
-  run.dynamicinvokelink
-
-  println(s"[compare] dumping dynamic graphs to $afterDir ...")
-  opts.dumpcpg14.outDir = afterDir.toString
-  run.dumpcpg14
-  save
-
-  println("[compare] finished")
+
+  (tool ++ Seq("diff", comparePath.toString)).!!.linesIterator.foreach(line => println(s"[compare] $line"))
+  println(s"[compare] finished, added edges in ${comparePath.resolve("diff.ndjson")}")
+}
+
+// Only the edge labels the overlay can add, one "label<TAB>src<TAB>dst" line each; no full graph dump.
+def snapshot(file: Path, tracked: String => Boolean): Unit = {
+  val edges = cpg.all.outE
+    .filter(edge => tracked(edge.label))
+    .map(edge => s"${edge.label}\t${nodeName(edge.src)}\t${nodeName(edge.dst)}")
+    .distinct
+    .toList
+  Files.write(file, edges.asJava)
+}
+
+def nodeName(node: AnyRef): String = node match {
+  case method: Method => method.fullName
+  case typeDecl: TypeDecl => typeDecl.fullName
+  case call: Call => call.methodFullName
+  case other: StoredNode => s"${other.label}#${other.id}"
+  case other => other.toString
 }
@@ -3,6 +3,8 @@ package com.secrux;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
+import com.secrux.startup.StartupRecorder;
+
 /**
  * Spring Boot entrypoint that exposes every original scenario via REST controllers.
  */
@@ -10,6 +12,8 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class SecruxApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(SecruxApplication.class, args);
+        SpringApplication application = new SpringApplication(SecruxApplication.class);
+        StartupRecorder.configure(application);
+        application.run(args);
     }
 }
@@ -1,49 +1,97 @@
 package com.secrux.aliasing;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.ref.WeakReference;
-import java.util.ArrayDeque;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Deque;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.SplittableRandom;
 
 import org.springframework.stereotype.Service;
 
+import com.secrux.decision.Decisions;
+
 /**
  * Produces aliasing scenarios where multiple references might or might not share the same object.
+ *
+ * <p>By default there are three single-entry pools: {@code direct}, {@code wrapped} (weak) and {@code mirrored}
+ * (a clone attempt). With {@code -Dsecrux.aliasing.pools=N} the scenario instead generates N pools of
+ * {@code secrux.aliasing.poolSize} entries to stress analyzers and the GC with a larger heap: a
+ * {@code secrux.aliasing.shareRatio} fraction of entries alias the shared resource, a
+ * {@code secrux.aliasing.weakRatio} fraction is held only through a {@link WeakReference}, and fresh resources are
+ * cloned {@code secrux.aliasing.cloneDepth} times into a chain. Generation is reproducible from
+ * {@code secrux.aliasing.seed}.</p>
  */
 @Service
 public class AliasingAmbiguity {
 
-    private final Map<String, Object[]> pools = new HashMap<>();
+    // Stands in for a collected referent and for the decoy queued next to the candidate; shared so run() allocates neither.
+    private static final CriticalResource RESURRECTED = new CriticalResource("resurrected");
+    private static final CriticalResource SHADOW = new CriticalResource("shadow");
+
+    private static final ClassValue<MethodHandle> CLONE = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            try {
+                Method clone = type.getMethod("clone");
+                return MethodHandles.publicLookup().unreflect(clone)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+            } catch (ReflectiveOperationException e) {
+                // Remembered as absent so the lookup is paid once per class, not per construction.
+                return null;
+            }
+        }
+    };
+
+    private final Object shared = new CriticalResource("shared");
+    // Indexed rather than keyed by name so selecting a pool is plain arithmetic.
+    private final Object[][] pools;
+    private final WeakIdentityRegistry<Integer> weaklyHeld = new WeakIdentityRegistry<>();
+    private final boolean stress;
+    private int strongEntries;
+    private int weakEntries;
+    private int sharedEntries;
+    private int cloneObjects;
 
     public AliasingAmbiguity() {
-        Object critical = new CriticalResource("shared");
-        // Store the same object in multiple containers to expand alias possibilities.
-        pools.put("direct", new Object[]{critical});
-        pools.put("wrapped", new Object[]{new WeakReference<>(critical)});
-        pools.put("mirrored", new Object[]{cloneIfPossible(critical)});
+        int poolCount = Integer.getInteger("secrux.aliasing.pools", 0);
+        this.stress = poolCount > 0;
+        if (!stress) {
+            // Store the same object in multiple containers to expand alias possibilities.
+            pools = new Object[][]{
+                    {shared},
+                    {new WeakReference<>(shared)},
+                    {cloneIfPossible(shared)}
+            };
+            weaklyHeld.register(shared, 1);
+            strongEntries = 2;
+            weakEntries = 1;
+            sharedEntries = 3;
+            return;
+        }
+        pools = generate(poolCount,
+                Integer.getInteger("secrux.aliasing.poolSize", 4),
+                Double.parseDouble(System.getProperty("secrux.aliasing.shareRatio", "0.25")),
+                Double.parseDouble(System.getProperty("secrux.aliasing.weakRatio", "0.5")),
+                Integer.getInteger("secrux.aliasing.cloneDepth", 1),
+                new SplittableRandom(Long.getLong("secrux.aliasing.seed", 42L)));
     }
 
     public List<String> run() {
         List<String> messages = new ArrayList<>();
         // Choose path in an opaque way – static analysis must assume every pool is reachable.
-        Object[] bucket = selectBucket(System.nanoTime());
-        Object candidate = unwrap(bucket[0]);
+        Object[] bucket = pools[Decisions.choose("aliasing.pool", pools.length)];
+        Object candidate = unwrap(bucket[Decisions.choose("aliasing.slot", bucket.length)]);
         messages.add("Aliasing candidate hash: " + candidate.hashCode());
 
-        // Enqueue into multiple structures; actual runtime aliasing is subtle here.
-        Deque<Object> deque = new ArrayDeque<>();
-        deque.add(candidate);
-        deque.add(new CriticalResource("shadow"));
-        deque.add(unwrap(pools.get("direct")[0]));
-
-        Object maybeSame = deque.stream()
-                .filter(obj -> Objects.equals(obj.toString(), candidate.toString()))
-                .findFirst()
-                .orElse(null);
+        // Line up the candidate, a decoy and the shared instance; actual runtime aliasing is subtle here.
+        // The resources' equality matches their toString, so equals() decides without building strings.
+        Object maybeSame = firstEqual(candidate, candidate, SHADOW, shared);
 
         if (maybeSame == candidate) {
             messages.add("Alias resolved to shared instance");
@@ -52,31 +100,82 @@ public class AliasingAmbiguity {
         } else {
             messages.add("Indistinguishable but distinct object present");
         }
+        weaklyHeld.expunge();
         return messages;
     }
 
-    private Object[] selectBucket(long seed) {
-        if (seed % 2 == 0) {
-            return pools.get("direct");
-        }
-        if (seed % 3 == 0) {
-            return pools.get("wrapped");
+    /**
+     * Entry counts fixed at generation time plus how many weakly held resources are still alive or were reclaimed.
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", stress ? "stress" : "default");
+        stats.put("pools", pools.length);
+        stats.put("strongEntries", strongEntries);
+        stats.put("weakEntries", weakEntries);
+        stats.put("sharedEntries", sharedEntries);
+        stats.put("cloneObjects", cloneObjects);
+        stats.put("liveWeaklyHeld", weaklyHeld.live());
+        stats.put("reclaimedWrappers", weaklyHeld.reclaimed());
+        return stats;
+    }
+
+    private Object[][] generate(int poolCount, int poolSize, double shareRatio, double weakRatio, int cloneDepth,
+                                SplittableRandom random) {
+        Object[][] generated = new Object[poolCount][poolSize];
+        for (int pool = 0; pool < poolCount; pool++) {
+            for (int slot = 0; slot < poolSize; slot++) {
+                Object resource;
+                if (random.nextDouble() < shareRatio) {
+                    resource = shared;
+                    sharedEntries++;
+                } else {
+                    resource = new CloneableResource("pool-" + pool + "-" + slot, null);
+                    for (int depth = 0; depth < cloneDepth; depth++) {
+                        resource = cloneIfPossible(resource);
+                        cloneObjects++;
+                    }
+                }
+                if (random.nextDouble() < weakRatio) {
+                    generated[pool][slot] = new WeakReference<>(resource);
+                    weaklyHeld.register(resource, pool);
+                    weakEntries++;
+                } else {
+                    generated[pool][slot] = resource;
+                    strongEntries++;
+                }
+            }
         }
-        return pools.get("mirrored");
+        return generated;
     }
 
     private Object unwrap(Object value) {
         if (value instanceof WeakReference) {
             Object referent = ((WeakReference<?>) value).get();
-            return referent != null ? referent : new CriticalResource("resurrected");
+            return referent != null ? referent : RESURRECTED;
         }
         return value;
     }
 
+    private static Object firstEqual(Object target, Object first, Object second, Object third) {
+        if (Objects.equals(first, target)) {
+            return first;
+        }
+        if (Objects.equals(second, target)) {
+            return second;
+        }
+        return Objects.equals(third, target) ? third : null;
+    }
+
     private Object cloneIfPossible(Object obj) {
+        MethodHandle clone = CLONE.get(obj.getClass());
+        if (clone == null) {
+            // Falling back makes static analysis assume both original and clone may exist, though at runtime we don't clone.
+            return obj;
+        }
         try {
-            return obj.getClass().getMethod("clone").invoke(obj);
-        } catch (Exception ignored) {
+            return (Object) clone.invokeExact(obj);
+        } catch (Throwable ignored) {
             // Swallowing makes static analysis assume both original and clone may exist, though at runtime we fall back.
             return obj;
         }
@@ -92,6 +191,10 @@ public class AliasingAmbiguity {
             this.name = name;
         }
 
+        String name() {
+            return name;
+        }
+
         @Override
         public String toString() {
             return "CriticalResource:" + name;
@@ -113,4 +216,22 @@ public class AliasingAmbiguity {
             return false;
         }
     }
+
+    /**
+     * Stress-mode resource that really clones; each copy keeps its original alive, so clone depth lengthens a chain.
+     */
+    public static class CloneableResource extends CriticalResource implements Cloneable {
+        // Only held to keep the chain reachable from its newest copy.
+        private final Object origin;
+
+        CloneableResource(String name, Object origin) {
+            super(name);
+            this.origin = origin;
+        }
+
+        @Override
+        public Object clone() {
+            return new CloneableResource(name(), this);
+        }
+    }
 }
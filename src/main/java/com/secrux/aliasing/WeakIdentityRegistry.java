@@ -0,0 +1,68 @@
+package com.secrux.aliasing;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrent map keyed by object identity that holds its keys weakly. Entries whose key was collected are expunged
+ * lazily on the next {@link #expunge()} and counted as reclaimed.
+ */
+final class WeakIdentityRegistry<V> {
+
+    private final ConcurrentMap<IdentityKey, V> entries = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+    private final AtomicLong reclaimed = new AtomicLong();
+
+    void register(Object key, V value) {
+        entries.put(new IdentityKey(key, collected), value);
+    }
+
+    /**
+     * Drops entries whose key has been collected; a no-op that allocates nothing when there are none.
+     */
+    void expunge() {
+        for (Object stale; (stale = collected.poll()) != null; ) {
+            if (entries.remove(stale) != null) {
+                reclaimed.incrementAndGet();
+            }
+        }
+    }
+
+    int live() {
+        expunge();
+        return entries.size();
+    }
+
+    long reclaimed() {
+        return reclaimed.get();
+    }
+
+    private static final class IdentityKey extends WeakReference<Object> {
+        private final int hash;
+
+        IdentityKey(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof IdentityKey)) {
+                return false;
+            }
+            Object referent = get();
+            return referent != null && referent == ((IdentityKey) obj).get();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.secrux.api;
 
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -22,4 +23,9 @@ public class AliasingController {
     public List<String> execute() {
         return aliasingAmbiguity.run();
     }
+
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        return aliasingAmbiguity.stats();
+    }
 }
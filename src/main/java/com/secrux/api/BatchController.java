@@ -0,0 +1,41 @@
+package com.secrux.api;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.secrux.batch.BatchRunner;
+
+@RestController
+@RequestMapping("/api/batch")
+public class BatchController {
+
+    static final String NDJSON = "application/x-ndjson";
+
+    private final BatchRunner batchRunner;
+
+    public BatchController(BatchRunner batchRunner) {
+        this.batchRunner = batchRunner;
+    }
+
+    // Reads the body and writes the response directly so neither side of a large batch is buffered in memory.
+    @PostMapping(produces = NDJSON)
+    public void execute(HttpServletRequest request, HttpServletResponse response) throws IOException, InterruptedException {
+        response.setContentType(NDJSON);
+        batchRunner.run(request.getInputStream(), response.getOutputStream());
+    }
+
+    /**
+     * Same body as {@code /api/batch}, but every invocation is run once per combination of its branch choices.
+     */
+    @PostMapping(path = "/coverage", produces = NDJSON)
+    public void coverage(HttpServletRequest request, HttpServletResponse response) throws IOException, InterruptedException {
+        response.setContentType(NDJSON);
+        batchRunner.explore(request.getInputStream(), response.getOutputStream());
+    }
+}
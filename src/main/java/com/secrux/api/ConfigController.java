@@ -0,0 +1,28 @@
+package com.secrux.api;
+
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.secrux.config.RuntimeConfig;
+
+@RestController
+@RequestMapping("/api/config")
+public class ConfigController {
+
+    @GetMapping
+    public Map<String, Object> current() {
+        return RuntimeConfig.current().describe();
+    }
+
+    /**
+     * Publishes a fresh snapshot; a {@code secrux.config} file that cannot be read keeps the previous one.
+     */
+    @PostMapping("/reload")
+    public Map<String, Object> reload() {
+        return RuntimeConfig.reload().describe();
+    }
+}
@@ -1,6 +1,7 @@
 package com.secrux.api;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -20,8 +21,9 @@ public class DynamicProxyController {
     }
 
     @GetMapping
-    public List<String> execute(@RequestParam(value = "input", required = false) String input,
-                                @RequestParam(value = "fallbackInput", required = false) String fallbackInput) throws Exception {
-        return dynamicProxyShowcase.run(input, fallbackInput);
+    public CompletableFuture<List<String>> execute(@RequestParam(value = "input", required = false) String input,
+                                                   @RequestParam(value = "fallbackInput", required = false) String fallbackInput)
+            throws Exception {
+        return dynamicProxyShowcase.runAsync(input, fallbackInput);
     }
 }
@@ -1,8 +1,11 @@
 package com.secrux.api;
 
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -23,4 +26,9 @@ public class LambdaController {
     public List<String> execute(@RequestParam(value = "optionalInput", required = false) String optionalInput) throws Exception {
         return lambdaLabyrinth.run(optionalInput);
     }
+
+    @PostMapping("/batch")
+    public List<Map<String, Object>> executeBatch(@RequestBody List<String> inputs) {
+        return lambdaLabyrinth.runBatch(inputs);
+    }
 }
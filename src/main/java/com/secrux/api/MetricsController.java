@@ -0,0 +1,36 @@
+package com.secrux.api;
+
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.secrux.metrics.EndpointMetrics;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final EndpointMetrics endpointMetrics;
+
+    public MetricsController(EndpointMetrics endpointMetrics) {
+        this.endpointMetrics = endpointMetrics;
+    }
+
+    @GetMapping
+    public Map<String, Object> snapshot() {
+        return endpointMetrics.snapshot();
+    }
+
+    /**
+     * Returns the final snapshot and starts a fresh measurement window.
+     */
+    @PostMapping("/reset")
+    public Map<String, Object> reset() {
+        Map<String, Object> snapshot = endpointMetrics.snapshot();
+        endpointMetrics.reset();
+        return snapshot;
+    }
+}
@@ -4,6 +4,7 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -24,14 +25,16 @@ public class ReflectionController {
     }
 
     @PostMapping
-    public Map<String, Object> execute(@RequestBody(required = false) ReflectionCommandRequest request) throws Exception {
+    public CompletableFuture<Map<String, Object>> execute(@RequestBody(required = false) ReflectionCommandRequest request)
+            throws Exception {
         List<String> command = request != null && request.getCommand() != null
                 ? request.getCommand()
                 : Collections.emptyList();
-        String result = reflectionMaze.run(command);
-        Map<String, Object> payload = new LinkedHashMap<>();
-        payload.put("command", command);
-        payload.put("result", result);
-        return payload;
+        return reflectionMaze.runAsync(command).thenApply(result -> {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("command", command);
+            payload.put("result", result);
+            return payload;
+        });
     }
 }
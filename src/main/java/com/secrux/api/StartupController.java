@@ -0,0 +1,25 @@
+package com.secrux.api;
+
+import java.util.Map;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.secrux.startup.StartupRecorder;
+
+@RestController
+@RequestMapping("/api/startup")
+public class StartupController {
+
+    private final StartupRecorder startupRecorder;
+
+    public StartupController(StartupRecorder startupRecorder) {
+        this.startupRecorder = startupRecorder;
+    }
+
+    @GetMapping
+    public Map<String, Object> timeline() {
+        return startupRecorder.describe();
+    }
+}
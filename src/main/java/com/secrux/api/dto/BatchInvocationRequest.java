@@ -0,0 +1,55 @@
+package com.secrux.api.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One entry of a {@code /api/batch} body: the scenario to run plus the parameters its own endpoint accepts.
+ */
+public class BatchInvocationRequest {
+    private String scenario;
+    private List<String> command = new ArrayList<>();
+    private String input;
+    private String fallbackInput;
+    private String optionalInput;
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    public void setScenario(String scenario) {
+        this.scenario = scenario;
+    }
+
+    public List<String> getCommand() {
+        return command;
+    }
+
+    public void setCommand(List<String> command) {
+        this.command = command;
+    }
+
+    public String getInput() {
+        return input;
+    }
+
+    public void setInput(String input) {
+        this.input = input;
+    }
+
+    public String getFallbackInput() {
+        return fallbackInput;
+    }
+
+    public void setFallbackInput(String fallbackInput) {
+        this.fallbackInput = fallbackInput;
+    }
+
+    public String getOptionalInput() {
+        return optionalInput;
+    }
+
+    public void setOptionalInput(String optionalInput) {
+        this.optionalInput = optionalInput;
+    }
+}
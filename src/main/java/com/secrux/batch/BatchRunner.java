@@ -0,0 +1,342 @@
+package com.secrux.batch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secrux.aliasing.AliasingAmbiguity;
+import com.secrux.api.dto.BatchInvocationRequest;
+import com.secrux.decision.Decisions;
+import com.secrux.decision.ScriptedDecisions;
+import com.secrux.dynamic.DynamicProxyShowcase;
+import com.secrux.lambda.LambdaLabyrinth;
+import com.secrux.reflection.ReflectionMaze;
+import com.secrux.unreachable.UnreachableTrap;
+
+/**
+ * Runs a stream of scenario invocations on a shared bounded pool and writes each result as one NDJSON line
+ * the moment it completes. Invocations are read one at a time and a global permit is taken before each is
+ * submitted, so a large batch neither buffers its input nor queues unbounded work: once
+ * {@code secrux.batch.inFlight} invocations are pending, reading simply stalls until one finishes.
+ *
+ * <p>{@link #explore} runs the same invocations in coverage mode: each is executed once for every combination of
+ * its runtime branch choices, so a complete trace takes a handful of deterministic runs instead of a soak test.</p>
+ */
+@Service
+public class BatchRunner {
+
+    private final ReflectionMaze reflectionMaze;
+    private final DynamicProxyShowcase dynamicProxyShowcase;
+    private final LambdaLabyrinth lambdaLabyrinth;
+    private final AliasingAmbiguity aliasingAmbiguity;
+    private final UnreachableTrap unreachableTrap;
+    private final ObjectMapper objectMapper;
+
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final int maxPaths;
+
+    public BatchRunner(ReflectionMaze reflectionMaze, DynamicProxyShowcase dynamicProxyShowcase,
+                       LambdaLabyrinth lambdaLabyrinth, AliasingAmbiguity aliasingAmbiguity,
+                       UnreachableTrap unreachableTrap, ObjectMapper objectMapper) {
+        // An exploration frees its permit when its last path finishes, so it must be allowed to run the first one.
+        this.maxPaths = Integer.getInteger("secrux.coverage.maxPaths", 4096);
+        if (maxPaths < 1) {
+            throw new IllegalArgumentException("secrux.coverage.maxPaths must be at least 1, got " + maxPaths);
+        }
+
+        this.reflectionMaze = reflectionMaze;
+        this.dynamicProxyShowcase = dynamicProxyShowcase;
+        this.lambdaLabyrinth = lambdaLabyrinth;
+        this.aliasingAmbiguity = aliasingAmbiguity;
+        this.unreachableTrap = unreachableTrap;
+        this.objectMapper = objectMapper;
+
+        int parallelism = Integer.getInteger("secrux.batch.parallelism", Runtime.getRuntime().availableProcessors());
+        AtomicInteger threadIds = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "secrux-batch-" + threadIds.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.inFlight = new Semaphore(Integer.getInteger("secrux.batch.inFlight", parallelism * 4));
+    }
+
+    /**
+     * Reads a JSON array of {@link BatchInvocationRequest}s from {@code body} and streams one line per invocation
+     * to {@code out}, in completion order. A failing invocation, or an element that is not an object, yields an error
+     * line; the batch carries on.
+     */
+    public void run(InputStream body, OutputStream out) throws IOException, InterruptedException {
+        ResultWriter writer = new ResultWriter(out);
+        Phaser pending = new Phaser(1);
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Batch body must be a JSON array of invocations");
+            }
+            int index = 0;
+            for (JsonToken token; (token = nextElement(parser)) != JsonToken.END_ARRAY && !writer.isClosed(); ) {
+                int position = index++;
+                if (token != JsonToken.START_OBJECT) {
+                    writer.write(skipMalformed(parser, position, token));
+                    continue;
+                }
+                BatchInvocationRequest invocation = objectMapper.readValue(parser, BatchInvocationRequest.class);
+                inFlight.acquire();
+                pending.register();
+                executor.execute(() -> {
+                    try {
+                        writer.write(execute(position, invocation));
+                    } finally {
+                        inFlight.release();
+                        pending.arriveAndDeregister();
+                    }
+                });
+            }
+        } finally {
+            pending.arriveAndAwaitAdvance();
+        }
+        writer.rethrow();
+    }
+
+    /**
+     * Coverage mode: for each invocation in the {@code body} array, runs one execution per path through its
+     * {@link Decisions} points, spread over the pool, and streams one line per execution with the choices it took.
+     * Each execution reports the choices it made beyond its scripted prefix, and the alternatives at those are
+     * submitted as new executions, so every path is run exactly once. Once an invocation's paths are done, or
+     * {@code secrux.coverage.maxPaths} of them have run, a summary line with {@code "paths"} and {@code "truncated"}
+     * follows.
+     */
+    public void explore(InputStream body, OutputStream out) throws IOException, InterruptedException {
+        ResultWriter writer = new ResultWriter(out);
+        Phaser pending = new Phaser(1);
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Batch body must be a JSON array of invocations");
+            }
+            int index = 0;
+            for (JsonToken token; (token = nextElement(parser)) != JsonToken.END_ARRAY && !writer.isClosed(); ) {
+                int position = index++;
+                if (token != JsonToken.START_OBJECT) {
+                    writer.write(skipMalformed(parser, position, token));
+                    continue;
+                }
+                BatchInvocationRequest invocation = objectMapper.readValue(parser, BatchInvocationRequest.class);
+                inFlight.acquire();
+                new Exploration(position, invocation, writer, pending).submit(new int[0]);
+            }
+        } finally {
+            pending.arriveAndAwaitAdvance();
+        }
+        writer.rethrow();
+    }
+
+    /**
+     * The first token of the next element of the body array, or {@code END_ARRAY} once it closes.
+     */
+    private static JsonToken nextElement(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            throw new IOException("Batch body ended before its closing ]");
+        }
+        return token;
+    }
+
+    /**
+     * Steps over an element that is not an invocation object and returns its error line, so the rest of the batch
+     * still runs.
+     */
+    private static Map<String, Object> skipMalformed(JsonParser parser, int index, JsonToken token)
+            throws IOException {
+        parser.skipChildren();
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("index", index);
+        line.put("error", "Invocation must be a JSON object, not " + describe(token));
+        return line;
+    }
+
+    private static String describe(JsonToken token) {
+        switch (token) {
+            case START_ARRAY:
+                return "an array";
+            case VALUE_STRING:
+                return "a string";
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return "a number";
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return "a boolean";
+            case VALUE_NULL:
+                return "null";
+            default:
+                return token.toString();
+        }
+    }
+
+    private Map<String, Object> execute(int index, BatchInvocationRequest invocation) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("index", index);
+        line.put("scenario", invocation.getScenario());
+        long start = System.nanoTime();
+        try {
+            line.put("result", resolve(invocation).call());
+        } catch (Exception e) {
+            line.put("error", e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+        line.put("elapsedMicros", (System.nanoTime() - start) / 1000);
+        return line;
+    }
+
+    private Callable<Object> resolve(BatchInvocationRequest invocation) {
+        String scenario = invocation.getScenario() == null ? "" : invocation.getScenario();
+        switch (scenario) {
+            case "reflection":
+                return () -> reflectionMaze.run(invocation.getCommand() != null
+                        ? invocation.getCommand()
+                        : Collections.emptyList());
+            case "dynamic-proxy":
+                return () -> dynamicProxyShowcase.run(invocation.getInput(), invocation.getFallbackInput());
+            case "lambda":
+                return () -> lambdaLabyrinth.run(invocation.getOptionalInput());
+            case "aliasing":
+                return aliasingAmbiguity::run;
+            case "unreachable":
+                return unreachableTrap::run;
+            default:
+                return () -> {
+                    throw new IllegalArgumentException("Unknown scenario '" + scenario + "'");
+                };
+        }
+    }
+
+    /**
+     * Every path of one invocation. The path count and the pending count cover executions still queued or running;
+     * whichever execution brings the pending count to zero writes the summary and frees the invocation's permit.
+     */
+    private final class Exploration {
+
+        private final int index;
+        private final BatchInvocationRequest invocation;
+        private final ResultWriter writer;
+        private final Phaser phaser;
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicInteger paths = new AtomicInteger();
+        private final AtomicBoolean truncated = new AtomicBoolean();
+
+        Exploration(int index, BatchInvocationRequest invocation, ResultWriter writer, Phaser phaser) {
+            this.index = index;
+            this.invocation = invocation;
+            this.writer = writer;
+            this.phaser = phaser;
+        }
+
+        void submit(int[] script) {
+            if (paths.incrementAndGet() > maxPaths) {
+                paths.decrementAndGet();
+                truncated.set(true);
+                return;
+            }
+            pending.incrementAndGet();
+            phaser.register();
+            executor.execute(() -> {
+                try {
+                    run(script);
+                } finally {
+                    if (pending.decrementAndGet() == 0) {
+                        writer.write(summary());
+                        inFlight.release();
+                    }
+                    phaser.arriveAndDeregister();
+                }
+            });
+        }
+
+        private void run(int[] script) {
+            if (writer.isClosed()) {
+                return; // The client went away; let the remaining paths drain without running them.
+            }
+            ScriptedDecisions decisions = new ScriptedDecisions(script);
+            Map<String, Object> line;
+            try {
+                line = Decisions.callWith(decisions, () -> execute(index, invocation));
+            } catch (Exception e) {
+                // execute() reports failures in its line; this only guards the contract of callWith.
+                throw new IllegalStateException(e);
+            }
+            line.put("decisions", decisions.describe());
+            writer.write(line);
+            for (int[] sibling : decisions.siblings()) {
+                submit(sibling);
+            }
+        }
+
+        private Map<String, Object> summary() {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("index", index);
+            line.put("scenario", invocation.getScenario());
+            line.put("paths", paths.get());
+            line.put("truncated", truncated.get());
+            return line;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Serializes lines from the worker threads onto the response; the first write failure (usually a client
+     * that went away) closes it so the reader stops submitting work.
+     */
+    private final class ResultWriter {
+
+        private final OutputStream out;
+        private IOException failure;
+
+        ResultWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        synchronized void write(Map<String, Object> line) {
+            if (failure != null) {
+                return;
+            }
+            try {
+                out.write(objectMapper.writeValueAsBytes(line));
+                out.write('\n');
+                out.flush();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        synchronized boolean isClosed() {
+            return failure != null;
+        }
+
+        synchronized void rethrow() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
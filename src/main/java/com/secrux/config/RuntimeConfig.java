@@ -0,0 +1,151 @@
+package com.secrux.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Immutable snapshot of the system properties and environment variables the scenarios branch on. Request paths read
+ * {@link #current()}, a single volatile load, instead of {@code System.getProperty}/{@code getenv}, which go through
+ * a synchronized {@code Hashtable} on Java 8 and contend across request threads.
+ *
+ * <p>The snapshot is taken once at class initialization and only replaced by {@link #reload()}. An optional
+ * properties file named by {@code -Dsecrux.config} is layered over the system properties, so flags can be changed
+ * on a running JVM by editing that file and reloading. Like {@code ProcessRunner}, the scenarios instantiated
+ * reflectively outside Spring reach it statically rather than through injection.</p>
+ */
+public final class RuntimeConfig {
+
+    public static final String FILE_PROPERTY = "secrux.config";
+
+    private static volatile RuntimeConfig current = load();
+
+    private final boolean enabled;
+    private final String mode;
+    private final String shadowImpl;
+    private final String alias;
+    private final String lambdaInput;
+    private final boolean trigger;
+    private final boolean execute;
+    private final boolean neverSet;
+    private final String proxyMode;
+    private final String source;
+
+    private RuntimeConfig(Properties properties, Map<String, String> env, String source) {
+        this.enabled = Boolean.parseBoolean(properties.getProperty("secrux.enable"));
+        this.mode = properties.getProperty("secrux.mode", "cold");
+        this.shadowImpl = properties.getProperty("secrux.ref.impl");
+        this.alias = env.get("SECRUX_ALIAS");
+        this.lambdaInput = env.get("SECRUX_LAMBDA");
+        this.trigger = properties.getProperty("secrux.trigger") != null;
+        this.execute = Boolean.parseBoolean(properties.getProperty("execute"));
+        this.neverSet = properties.getProperty("neverSet") != null;
+        this.proxyMode = properties.getProperty("secrux.proxy.mode", "jdk");
+        this.source = source;
+    }
+
+    public static RuntimeConfig current() {
+        return current;
+    }
+
+    /**
+     * Re-reads the system properties, the environment and the {@code secrux.config} file and publishes the result.
+     * A file that cannot be read fails the reload and leaves the previous snapshot in place.
+     */
+    public static synchronized RuntimeConfig reload() {
+        RuntimeConfig next = read();
+        current = next;
+        return next;
+    }
+
+    private static RuntimeConfig load() {
+        try {
+            return read();
+        } catch (IllegalStateException e) {
+            System.err.println("[Config] " + e.getMessage() + "; starting from system properties only");
+            return new RuntimeConfig(System.getProperties(), System.getenv(), "system properties");
+        }
+    }
+
+    private static RuntimeConfig read() {
+        // Copied so later System.setProperty calls cannot leak into this snapshot.
+        Properties properties = new Properties();
+        properties.putAll(System.getProperties());
+        String file = properties.getProperty(FILE_PROPERTY);
+        if (file == null) {
+            return new RuntimeConfig(properties, System.getenv(), "system properties");
+        }
+        Path path = Paths.get(file);
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + path + ": " + e.getMessage(), e);
+        }
+        return new RuntimeConfig(properties, System.getenv(), "system properties + " + path);
+    }
+
+    /** {@code -Dsecrux.enable=true} opens {@code UnreachableTrap}'s heavy branch. */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /** {@code -Dsecrux.mode}, {@code cold} unless set. */
+    public String mode() {
+        return mode;
+    }
+
+    /** Class the reflection scenario's {@code Shadow} alias points to, or {@code fallback} if not set. */
+    public String shadowImpl(String fallback) {
+        return shadowImpl != null ? shadowImpl : fallback;
+    }
+
+    /** {@code SECRUX_ALIAS}, pinning the reflection alias; {@code null} if not set. */
+    public String alias() {
+        return alias;
+    }
+
+    /** {@code SECRUX_LAMBDA}, the lambda scenario's optional input; {@code null} if not set. */
+    public String lambdaInput() {
+        return lambdaInput;
+    }
+
+    /** Whether {@code -Dsecrux.trigger} is set at all. */
+    public boolean trigger() {
+        return trigger;
+    }
+
+    /** {@code -Dexecute=true}, guarding the dormant lambda. */
+    public boolean execute() {
+        return execute;
+    }
+
+    /** Whether {@code -DneverSet} is set at all; guards the lambda scenario's panic branch. */
+    public boolean neverSet() {
+        return neverSet;
+    }
+
+    /** {@code -Dsecrux.proxy.mode}, {@code jdk} unless set. */
+    public String proxyMode() {
+        return proxyMode;
+    }
+
+    public Map<String, Object> describe() {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("source", source);
+        view.put("secrux.enable", enabled);
+        view.put("secrux.mode", mode);
+        view.put("secrux.ref.impl", shadowImpl);
+        view.put("secrux.trigger", trigger);
+        view.put("secrux.proxy.mode", proxyMode);
+        view.put("execute", execute);
+        view.put("neverSet", neverSet);
+        view.put("SECRUX_ALIAS", alias);
+        view.put("SECRUX_LAMBDA", lambdaInput);
+        return view;
+    }
+}
@@ -0,0 +1,149 @@
+package com.secrux.cpg;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.secrux.cpg.FlatGraph.Direction;
+
+/**
+ * Answers the {@code cfgMain.sc} questions straight from {@code cpg.bin} without starting Joern:
+ *
+ * <pre>
+ * CpgQuery &lt;cpg.bin&gt; summary
+ * CpgQuery &lt;cpg.bin&gt; methods [limit]
+ * CpgQuery &lt;cpg.bin&gt; cfg &lt;methodName&gt; [filenameFragment] [out.dot]
+ * </pre>
+ *
+ * {@code cfg} follows outgoing {@code CFG} edges from the first matching {@code METHOD} and prints the reached
+ * subgraph as DOT. Each run reports its time and how many bytes it had to decompress.
+ */
+public final class CpgQuery {
+
+    private CpgQuery() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CpgQuery <cpg.bin> summary | methods [limit] | cfg <methodName> "
+                    + "[filenameFragment] [out.dot]");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        try (FlatGraph graph = FlatGraph.open(Paths.get(args[0]))) {
+            switch (args[1]) {
+                case "summary":
+                    for (String label : graph.nodeLabels()) {
+                        if (graph.nodeCount(label) > 0) {
+                            System.out.println(label + " " + graph.nodeCount(label));
+                        }
+                    }
+                    break;
+                case "methods":
+                    int limit = args.length > 2 ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+                    List<String> names = methodFullNames(graph);
+                    System.out.println("Total methods discovered: " + names.size());
+                    names.stream().limit(limit).forEach(name -> System.out.println(" - " + name));
+                    break;
+                case "cfg":
+                    if (args.length < 3) {
+                        System.err.println("cfg needs a method name");
+                        System.exit(2);
+                    }
+                    NodeRef method = findMethod(graph, args[2], args.length > 3 ? args[3] : "");
+                    if (method == null) {
+                        System.out.println("Method not found: " + args[2]);
+                        break;
+                    }
+                    String dot = dotCfg(graph, method);
+                    if (args.length > 4) {
+                        Files.write(Paths.get(args[4]), dot.getBytes(StandardCharsets.UTF_8));
+                        System.out.println("CFG DOT exported to " + args[4]);
+                    } else {
+                        System.out.println(dot);
+                    }
+                    break;
+                default:
+                    System.err.println("Unknown query " + args[1]);
+                    System.exit(2);
+            }
+            System.err.println("[CpgQuery] " + (System.nanoTime() - start) / 1_000_000 + " ms, "
+                    + graph.decompressedBytes() + " bytes decompressed");
+        }
+    }
+
+    public static List<String> methodFullNames(FlatGraph graph) {
+        FlatGraph.Column fullNames = graph.property("METHOD", "FULL_NAME");
+        int count = graph.nodeCount("METHOD");
+        List<String> names = new ArrayList<>(count);
+        for (int seq = 0; seq < count; seq++) {
+            if (!graph.isDeleted("METHOD", seq)) {
+                names.add(String.valueOf(fullNames.first(seq)));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * First live {@code METHOD} named {@code name} whose {@code FILENAME} contains {@code filenameFragment}.
+     */
+    public static NodeRef findMethod(FlatGraph graph, String name, String filenameFragment) {
+        FlatGraph.Column names = graph.property("METHOD", "NAME");
+        FlatGraph.Column filenames = graph.property("METHOD", "FILENAME");
+        for (int seq = 0; seq < graph.nodeCount("METHOD"); seq++) {
+            if (graph.isDeleted("METHOD", seq) || !name.equals(names.first(seq))) {
+                continue;
+            }
+            Object filename = filenameFragment.isEmpty() ? "" : filenames.first(seq);
+            if (filename != null && filename.toString().contains(filenameFragment)) {
+                return new NodeRef("METHOD", seq);
+            }
+        }
+        return null;
+    }
+
+    public static String dotCfg(FlatGraph graph, NodeRef method) {
+        Set<NodeRef> nodes = new LinkedHashSet<>();
+        List<NodeRef[]> edges = new ArrayList<>();
+        Deque<NodeRef> pending = new ArrayDeque<>();
+        nodes.add(method);
+        pending.add(method);
+        while (!pending.isEmpty()) {
+            NodeRef node = pending.poll();
+            for (NodeRef next : graph.neighbors(node, "CFG", Direction.OUT)) {
+                edges.add(new NodeRef[]{node, next});
+                if (nodes.add(next)) {
+                    pending.add(next);
+                }
+            }
+        }
+
+        StringBuilder dot = new StringBuilder();
+        dot.append("digraph \"").append(graph.property("METHOD", "NAME").first(method.seq())).append("\" {\n");
+        for (NodeRef node : nodes) {
+            Object code = graph.property(node.label(), "CODE").first(node.seq());
+            Object line = graph.property(node.label(), "LINE_NUMBER").first(node.seq());
+            dot.append("\"").append(node).append("\" [label = <(").append(node.label()).append(',')
+                    .append(escape(code == null ? "" : code.toString())).append(')');
+            if (line != null) {
+                dot.append("<SUB>").append(line).append("</SUB>");
+            }
+            dot.append("> ]\n");
+        }
+        for (NodeRef[] edge : edges) {
+            dot.append("  \"").append(edge[0]).append("\" -> \"").append(edge[1]).append("\"  \n");
+        }
+        return dot.append("}\n").toString();
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
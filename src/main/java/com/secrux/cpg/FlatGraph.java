@@ -0,0 +1,382 @@
+package com.secrux.cpg;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Array;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Read-only view of a flatgraph {@code cpg.bin}: an {@code FLT GRPH} header, a little-endian offset to a JSON
+ * manifest at the end of the file, and one zstd frame per array in between. The file is memory-mapped and only the
+ * manifest is parsed on open; each property, edge or string pool array is decompressed the first time it is asked
+ * for and cached, so listing method names never touches the AST or CFG blocks.
+ * <p>
+ * Nodes are addressed by label and sequence id. Multi-valued columns are stored per label as a per-node count array
+ * ({@code qty}) next to the flattened values; references pack the node label's manifest index in the upper 32 bits.
+ */
+public final class FlatGraph implements Closeable {
+
+    public enum Direction {
+        IN, OUT
+    }
+
+    private static final byte[] MAGIC = "FLT GRPH".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer mapped;
+    private final List<String> labels = new ArrayList<>();
+    private final Map<String, Integer> nodeCounts = new LinkedHashMap<>();
+    private final Map<String, int[]> deletions = new HashMap<>();
+    private final Map<String, JsonNode> propertyStorage = new HashMap<>();
+    private final Map<String, JsonNode> edgeStorage = new HashMap<>();
+    private final JsonNode stringLengthStorage;
+    private final JsonNode stringBytesStorage;
+    private final Map<String, Column> columns = new ConcurrentHashMap<>();
+    private final AtomicLong decompressedBytes = new AtomicLong();
+    private volatile StringPool strings;
+
+    private FlatGraph(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long size = channel.size();
+        // One mapping covers the usual file; larger ones are mapped block by block.
+        this.mapped = size <= Integer.MAX_VALUE ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : null;
+        ByteBuffer header = slice(0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a flatgraph file: missing FLT GRPH header");
+        }
+        long manifestOffset = header.getLong();
+        if (manifestOffset < HEADER_SIZE || manifestOffset >= size) {
+            throw new IOException("Manifest offset " + manifestOffset + " outside the file");
+        }
+        JsonNode manifest = new ObjectMapper().readTree(bytes(manifestOffset, (int) (size - manifestOffset)));
+        if (manifest.path("version").asInt(-1) != 0) {
+            throw new IOException("Unsupported flatgraph version " + manifest.path("version"));
+        }
+        for (JsonNode node : manifest.path("nodes")) {
+            String label = node.path("nodeLabel").asText();
+            labels.add(label);
+            nodeCounts.put(label, node.path("nnodes").asInt());
+            JsonNode deleted = node.path("deletions");
+            if (deleted.isArray() && deleted.size() > 0) {
+                int[] seqs = new int[deleted.size()];
+                for (int i = 0; i < seqs.length; i++) {
+                    seqs[i] = deleted.get(i).asInt();
+                }
+                Arrays.sort(seqs);
+                deletions.put(label, seqs);
+            }
+        }
+        for (JsonNode property : manifest.path("properties")) {
+            propertyStorage.put(property.path("nodeLabel").asText() + '.' + property.path("propertyLabel").asText(),
+                    property);
+        }
+        for (JsonNode edge : manifest.path("edges")) {
+            Direction direction = edge.path("inout").asInt() == 0 ? Direction.IN : Direction.OUT;
+            edgeStorage.put(edgeKey(edge.path("nodeLabel").asText(), edge.path("edgeLabel").asText(), direction), edge);
+        }
+        this.stringLengthStorage = manifest.path("stringPoolLength");
+        this.stringBytesStorage = manifest.path("stringPoolBytes");
+    }
+
+    public static FlatGraph open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file);
+        try {
+            return new FlatGraph(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Node labels in manifest order; a label's position is the kind index packed into references.
+     */
+    public List<String> nodeLabels() {
+        return Collections.unmodifiableList(labels);
+    }
+
+    public int nodeCount(String label) {
+        return nodeCounts.getOrDefault(label, 0);
+    }
+
+    public boolean isDeleted(String label, int seq) {
+        int[] deleted = deletions.get(label);
+        return deleted != null && Arrays.binarySearch(deleted, seq) >= 0;
+    }
+
+    /**
+     * Values of {@code propertyLabel} on {@code nodeLabel} nodes; empty when the graph stores none.
+     */
+    public Column property(String nodeLabel, String propertyLabel) {
+        String key = nodeLabel + '.' + propertyLabel;
+        return column("p:" + key, propertyStorage.get(key), "qty", "property");
+    }
+
+    /**
+     * Adjacent nodes per {@code nodeLabel} node along {@code edgeLabel}; values are {@link NodeRef}s.
+     */
+    public Column edges(String nodeLabel, String edgeLabel, Direction direction) {
+        String key = edgeKey(nodeLabel, edgeLabel, direction);
+        return column("e:" + key, edgeStorage.get(key), "qty", "neighbors");
+    }
+
+    /**
+     * Edge properties aligned with {@link #edges}: the i-th value belongs to the i-th neighbor.
+     */
+    public Column edgeProperties(String nodeLabel, String edgeLabel, Direction direction) {
+        String key = edgeKey(nodeLabel, edgeLabel, direction);
+        return column("ep:" + key, edgeStorage.get(key), "qty", "property");
+    }
+
+    public List<NodeRef> neighbors(NodeRef node, String edgeLabel, Direction direction) {
+        List<Object> values = edges(node.label(), edgeLabel, direction).values(node.seq());
+        List<NodeRef> refs = new ArrayList<>(values.size());
+        for (Object value : values) {
+            refs.add((NodeRef) value);
+        }
+        return refs;
+    }
+
+    /**
+     * Entry {@code index} of the string pool, decoded on first use.
+     */
+    public String string(int index) {
+        StringPool pool = strings;
+        if (pool == null) {
+            synchronized (this) {
+                pool = strings;
+                if (pool == null) {
+                    pool = new StringPool((int[]) decode(stringLengthStorage), (byte[]) decode(stringBytesStorage));
+                    strings = pool;
+                }
+            }
+        }
+        return pool.get(index);
+    }
+
+    /**
+     * Bytes decompressed so far; a measure of how much of the file a query actually needed.
+     */
+    public long decompressedBytes() {
+        return decompressedBytes.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static String edgeKey(String nodeLabel, String edgeLabel, Direction direction) {
+        return nodeLabel + '.' + edgeLabel + '.' + direction;
+    }
+
+    private Column column(String cacheKey, JsonNode entry, String qtyField, String valueField) {
+        if (entry == null || entry.path(valueField).isNull() || entry.path(valueField).isMissingNode()) {
+            return Column.EMPTY;
+        }
+        return columns.computeIfAbsent(cacheKey, key -> {
+            JsonNode qty = entry.path(qtyField);
+            int[] offsets = qty.isNull() || qty.isMissingNode() ? null : offsets((int[]) decode(qty));
+            return new Column(this, entry.path(valueField).path("type").asText(), offsets, decode(entry.path(valueField)));
+        });
+    }
+
+    // Per-node counts become start offsets; the stored array already carries the trailing slot.
+    private static int[] offsets(int[] counts) {
+        int[] offsets = new int[counts.length];
+        int running = 0;
+        for (int i = 0; i < counts.length; i++) {
+            offsets[i] = running;
+            running += counts[i];
+        }
+        return offsets;
+    }
+
+    private Object decode(JsonNode storage) {
+        if (storage == null || storage.isNull() || storage.isMissingNode()) {
+            return null;
+        }
+        String type = storage.path("type").asText();
+        int length = storage.path("decompressedLength").asInt();
+        byte[] raw;
+        try {
+            raw = ZstdDecoder.decompress(bytes(storage.path("startOffset").asLong(),
+                    storage.path("compressedLength").asInt()), length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        decompressedBytes.addAndGet(length);
+        ByteBuffer buffer = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+        switch (type) {
+            case "bool":
+            case "byte":
+                return raw;
+            case "short": {
+                short[] values = new short[length / 2];
+                buffer.asShortBuffer().get(values);
+                return values;
+            }
+            case "int":
+            case "string": {
+                int[] values = new int[length / 4];
+                buffer.asIntBuffer().get(values);
+                return values;
+            }
+            case "long":
+            case "ref": {
+                long[] values = new long[length / 8];
+                buffer.asLongBuffer().get(values);
+                return values;
+            }
+            case "float": {
+                float[] values = new float[length / 4];
+                buffer.asFloatBuffer().get(values);
+                return values;
+            }
+            case "double": {
+                double[] values = new double[length / 8];
+                buffer.asDoubleBuffer().get(values);
+                return values;
+            }
+            default:
+                throw new IllegalStateException("Unknown flatgraph storage type " + type);
+        }
+    }
+
+    private byte[] bytes(long offset, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        slice(offset, length).get(bytes);
+        return bytes;
+    }
+
+    private ByteBuffer slice(long offset, int length) throws IOException {
+        if (mapped == null) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+        ByteBuffer view = mapped.duplicate();
+        // Buffer casts keep the bytecode linkable on Java 8.
+        ((Buffer) view).position((int) offset);
+        ((Buffer) view).limit((int) offset + length);
+        return view.slice();
+    }
+
+    /**
+     * One decompressed array with its per-node offsets. Without offsets every node has exactly one value.
+     */
+    public static final class Column {
+        static final Column EMPTY = new Column(null, "", new int[0], null);
+
+        private final FlatGraph graph;
+        private final String type;
+        private final int[] offsets;
+        private final Object values;
+
+        Column(FlatGraph graph, String type, int[] offsets, Object values) {
+            this.graph = graph;
+            this.type = type;
+            this.offsets = offsets;
+            this.values = values;
+        }
+
+        public int count(int seq) {
+            if (offsets == null) {
+                return values != null && seq < Array.getLength(values) ? 1 : 0;
+            }
+            return seq + 1 < offsets.length ? offsets[seq + 1] - offsets[seq] : 0;
+        }
+
+        public List<Object> values(int seq) {
+            int count = count(seq);
+            if (count == 0) {
+                return Collections.emptyList();
+            }
+            int start = offsets == null ? seq : offsets[seq];
+            List<Object> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(value(start + i));
+            }
+            return result;
+        }
+
+        /**
+         * The node's first value, or {@code null} when it has none.
+         */
+        public Object first(int seq) {
+            return count(seq) == 0 ? null : value(offsets == null ? seq : offsets[seq]);
+        }
+
+        private Object value(int index) {
+            switch (type) {
+                case "bool":
+                    return ((byte[]) values)[index] != 0;
+                case "byte":
+                    return ((byte[]) values)[index];
+                case "short":
+                    return ((short[]) values)[index];
+                case "int":
+                    return ((int[]) values)[index];
+                case "string": {
+                    int pooled = ((int[]) values)[index];
+                    return pooled < 0 ? null : graph.string(pooled);
+                }
+                case "long":
+                    return ((long[]) values)[index];
+                case "ref": {
+                    long packed = ((long[]) values)[index];
+                    return new NodeRef(graph.labels.get((int) (packed >>> 32)), (int) packed);
+                }
+                case "float":
+                    return ((float[]) values)[index];
+                default:
+                    return ((double[]) values)[index];
+            }
+        }
+    }
+
+    private static final class StringPool {
+        private final int[] starts;
+        private final byte[] bytes;
+        private final String[] decoded;
+
+        StringPool(int[] lengths, byte[] bytes) {
+            this.starts = offsets(lengths == null ? new int[0] : appendSlot(lengths));
+            this.bytes = bytes == null ? new byte[0] : bytes;
+            this.decoded = new String[starts.length - 1];
+        }
+
+        private static int[] appendSlot(int[] lengths) {
+            return Arrays.copyOf(lengths, lengths.length + 1);
+        }
+
+        String get(int index) {
+            String value = decoded[index];
+            if (value == null) {
+                value = new String(bytes, starts[index], starts[index + 1] - starts[index], StandardCharsets.UTF_8);
+                decoded[index] = value;
+            }
+            return value;
+        }
+    }
+}
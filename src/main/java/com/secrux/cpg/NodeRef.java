@@ -0,0 +1,43 @@
+package com.secrux.cpg;
+
+import java.util.Objects;
+
+/**
+ * A node of a {@link FlatGraph}, addressed by its label and its sequence id within that label.
+ */
+public final class NodeRef {
+    private final String label;
+    private final int seq;
+
+    public NodeRef(String label, int seq) {
+        this.label = label;
+        this.seq = seq;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public int seq() {
+        return seq;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(label, seq);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof NodeRef)) {
+            return false;
+        }
+        NodeRef other = (NodeRef) obj;
+        return seq == other.seq && label.equals(other.label);
+    }
+
+    @Override
+    public String toString() {
+        return label + '#' + seq;
+    }
+}
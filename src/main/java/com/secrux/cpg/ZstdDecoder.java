@@ -0,0 +1,655 @@
+package com.secrux.cpg;
+
+/**
+ * Minimal pure-Java Zstandard (RFC 8878) decompressor for the blocks of a flatgraph file: raw, RLE and compressed
+ * blocks with Huffman literals and FSE sequences. Dictionaries are not supported (flatgraph never uses them) and
+ * content checksums are skipped rather than verified; the caller checks the decompressed length instead.
+ */
+final class ZstdDecoder {
+
+    private static final int MAGIC = 0xFD2FB528;
+    private static final int SKIPPABLE_MAGIC_MASK = 0xFFFFFFF0;
+    private static final int SKIPPABLE_MAGIC = 0x184D2A50;
+    private static final int MAX_BLOCK_SIZE = 1 << 17;
+
+    private static final int[] LL_BASE = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 18, 20, 22, 24,
+            28, 32, 40, 48, 64, 128, 256, 512, 1024, 2048, 4096, 8192, 16384, 32768, 65536};
+    private static final int[] LL_BITS = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 3, 3, 4,
+            6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+    private static final int[] ML_BASE = {3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23,
+            24, 25, 26, 27, 28, 29, 30, 31, 32, 33, 34, 35, 37, 39, 41, 43, 47, 51, 59, 67, 83, 99, 131, 259, 515,
+            1027, 2051, 4099, 8195, 16387, 32771, 65539};
+    private static final int[] ML_BITS = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 3, 3, 4, 4, 5, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+
+    private static final FseTable PREDEFINED_LL = FseTable.build(new short[]{4, 3, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 1,
+            1, 1, 2, 2, 2, 2, 2, 2, 2, 2, 2, 3, 2, 1, 1, 1, 1, 1, -1, -1, -1, -1}, 36, 6);
+    private static final FseTable PREDEFINED_ML = FseTable.build(new short[]{1, 4, 3, 2, 2, 2, 2, 2, 2, 1, 1, 1, 1, 1,
+            1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1,
+            -1, -1, -1, -1}, 53, 6);
+    private static final FseTable PREDEFINED_OF = FseTable.build(new short[]{1, 1, 1, 1, 1, 1, 2, 2, 2, 1, 1, 1, 1, 1,
+            1, 1, 1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1, -1, -1}, 29, 5);
+
+    private final byte[] src;
+    private final byte[] out;
+    private final byte[] literalBuffer = new byte[MAX_BLOCK_SIZE];
+    private int cursor;
+    private int outPos;
+
+    // Carried from block to block within a frame.
+    private int rep1;
+    private int rep2;
+    private int rep3;
+    private HuffmanTable huffman;
+    private FseTable literalLengths;
+    private FseTable offsets;
+    private FseTable matchLengths;
+
+    private ZstdDecoder(byte[] src, byte[] out) {
+        this.src = src;
+        this.out = out;
+    }
+
+    /**
+     * Decompresses every frame in {@code src}; fails unless they produce exactly {@code decompressedLength} bytes.
+     */
+    static byte[] decompress(byte[] src, int decompressedLength) {
+        byte[] out = new byte[decompressedLength];
+        ZstdDecoder decoder = new ZstdDecoder(src, out);
+        decoder.frames();
+        if (decoder.outPos != decompressedLength) {
+            throw corrupted("expected " + decompressedLength + " bytes, got " + decoder.outPos);
+        }
+        return out;
+    }
+
+    private void frames() {
+        while (cursor < src.length) {
+            int magic = intLE(cursor);
+            if ((magic & SKIPPABLE_MAGIC_MASK) == SKIPPABLE_MAGIC) {
+                cursor += 8 + intLE(cursor + 4);
+                continue;
+            }
+            if (magic != MAGIC) {
+                throw corrupted("bad frame magic " + Integer.toHexString(magic));
+            }
+            cursor += 4;
+            frame();
+        }
+    }
+
+    private void frame() {
+        int descriptor = u8(cursor++);
+        int contentSizeFlag = descriptor >>> 6;
+        boolean singleSegment = (descriptor & 0x20) != 0;
+        boolean checksum = (descriptor & 0x04) != 0;
+        int dictionaryFlag = descriptor & 0x03;
+        if ((descriptor & 0x08) != 0) {
+            throw corrupted("reserved frame header bit set");
+        }
+        if (!singleSegment) {
+            cursor++; // Window descriptor; the output is sized by the caller.
+        }
+        int dictionaryBytes = dictionaryFlag == 3 ? 4 : dictionaryFlag;
+        long dictionaryId = 0;
+        for (int i = 0; i < dictionaryBytes; i++) {
+            dictionaryId |= (long) u8(cursor + i) << (8 * i);
+        }
+        if (dictionaryId != 0) {
+            throw new UnsupportedOperationException("zstd dictionaries are not supported");
+        }
+        cursor += dictionaryBytes;
+        cursor += contentSizeFlag == 0 ? (singleSegment ? 1 : 0) : 1 << contentSizeFlag;
+
+        rep1 = 1;
+        rep2 = 4;
+        rep3 = 8;
+        huffman = null;
+        literalLengths = null;
+        offsets = null;
+        matchLengths = null;
+
+        boolean last;
+        do {
+            int header = u8(cursor) | u8(cursor + 1) << 8 | u8(cursor + 2) << 16;
+            cursor += 3;
+            last = (header & 1) != 0;
+            int type = (header >>> 1) & 3;
+            int size = header >>> 3;
+            switch (type) {
+                case 0:
+                    ensureOutput(size);
+                    System.arraycopy(src, cursor, out, outPos, size);
+                    outPos += size;
+                    cursor += size;
+                    break;
+                case 1:
+                    ensureOutput(size);
+                    byte value = src[cursor++];
+                    for (int i = 0; i < size; i++) {
+                        out[outPos++] = value;
+                    }
+                    break;
+                case 2:
+                    int end = cursor + size;
+                    compressedBlock(end);
+                    cursor = end;
+                    break;
+                default:
+                    throw corrupted("reserved block type");
+            }
+        } while (!last);
+        if (checksum) {
+            cursor += 4;
+        }
+    }
+
+    private void compressedBlock(int end) {
+        int literalsLength = literals();
+        byte[] literals = literalBuffer;
+        int literalsOffset = 0;
+
+        int sequences = u8(cursor++);
+        if (sequences >= 128) {
+            if (sequences < 255) {
+                sequences = ((sequences - 128) << 8) + u8(cursor++);
+            } else {
+                sequences = u8(cursor) + (u8(cursor + 1) << 8) + 0x7F00;
+                cursor += 2;
+            }
+        }
+        if (sequences > 0) {
+            int modes = u8(cursor++);
+            literalLengths = selectTable((modes >>> 6) & 3, literalLengths, PREDEFINED_LL, 9, 35);
+            offsets = selectTable((modes >>> 4) & 3, offsets, PREDEFINED_OF, 8, 31);
+            matchLengths = selectTable((modes >>> 2) & 3, matchLengths, PREDEFINED_ML, 9, 52);
+
+            BackwardBits bits = new BackwardBits(src, cursor, end);
+            int llState = bits.read(literalLengths.log);
+            int ofState = bits.read(offsets.log);
+            int mlState = bits.read(matchLengths.log);
+            for (int i = 0; i < sequences; i++) {
+                int offsetCode = offsets.symbol[ofState];
+                int matchCode = matchLengths.symbol[mlState];
+                int literalCode = literalLengths.symbol[llState];
+                long offsetValue = (1L << offsetCode) + bits.read(offsetCode);
+                int matchLength = ML_BASE[matchCode] + bits.read(ML_BITS[matchCode]);
+                int literalLength = LL_BASE[literalCode] + bits.read(LL_BITS[literalCode]);
+                if (i + 1 < sequences) {
+                    llState = literalLengths.next(llState, bits);
+                    mlState = matchLengths.next(mlState, bits);
+                    ofState = offsets.next(ofState, bits);
+                }
+                int offset = resolveOffset(offsetValue, literalLength);
+
+                if (literalsOffset + literalLength > literalsLength) {
+                    throw corrupted("sequence reads past the literals");
+                }
+                ensureOutput(literalLength + matchLength);
+                System.arraycopy(literals, literalsOffset, out, outPos, literalLength);
+                literalsOffset += literalLength;
+                outPos += literalLength;
+                if (offset > outPos || offset <= 0) {
+                    throw corrupted("match offset " + offset + " before start of output");
+                }
+                // Byte by byte: a match may overlap the bytes it is producing.
+                for (int from = outPos - offset, k = 0; k < matchLength; k++) {
+                    out[outPos++] = out[from + k];
+                }
+            }
+        }
+        int remaining = literalsLength - literalsOffset;
+        ensureOutput(remaining);
+        System.arraycopy(literals, literalsOffset, out, outPos, remaining);
+        outPos += remaining;
+    }
+
+    private int resolveOffset(long offsetValue, int literalLength) {
+        if (offsetValue > 3) {
+            int offset = (int) (offsetValue - 3);
+            rep3 = rep2;
+            rep2 = rep1;
+            rep1 = offset;
+            return offset;
+        }
+        // Repeat offsets; with no literals in front the index shifts by one.
+        int index = (int) offsetValue - 1 + (literalLength == 0 ? 1 : 0);
+        if (index == 0) {
+            return rep1;
+        }
+        int offset = index == 1 ? rep2 : index == 2 ? rep3 : rep1 - 1;
+        if (index != 1) {
+            rep3 = rep2;
+        }
+        rep2 = rep1;
+        rep1 = offset;
+        return offset;
+    }
+
+    /**
+     * Decodes the literals section into {@link #literalBuffer} and returns how many literals it holds.
+     */
+    private int literals() {
+        int header = u8(cursor);
+        int type = header & 3;
+        int sizeFormat = (header >>> 2) & 3;
+        if (type < 2) {
+            int regenerated;
+            switch (sizeFormat) {
+                case 1:
+                    regenerated = (header >>> 4) + (u8(cursor + 1) << 4);
+                    cursor += 2;
+                    break;
+                case 3:
+                    regenerated = (header >>> 4) + (u8(cursor + 1) << 4) + (u8(cursor + 2) << 12);
+                    cursor += 3;
+                    break;
+                default:
+                    regenerated = header >>> 3;
+                    cursor += 1;
+            }
+            if (type == 0) {
+                System.arraycopy(src, cursor, literalBuffer, 0, regenerated);
+                cursor += regenerated;
+            } else {
+                byte value = src[cursor++];
+                for (int i = 0; i < regenerated; i++) {
+                    literalBuffer[i] = value;
+                }
+            }
+            return regenerated;
+        }
+
+        int streams = sizeFormat == 0 ? 1 : 4;
+        int regenerated;
+        int compressed;
+        switch (sizeFormat) {
+            case 0:
+            case 1: {
+                int bits = u8(cursor) | u8(cursor + 1) << 8 | u8(cursor + 2) << 16;
+                regenerated = (bits >>> 4) & 0x3FF;
+                compressed = (bits >>> 14) & 0x3FF;
+                cursor += 3;
+                break;
+            }
+            case 2: {
+                int bits = intLE(cursor);
+                regenerated = (bits >>> 4) & 0x3FFF;
+                compressed = (bits >>> 18) & 0x3FFF;
+                cursor += 4;
+                break;
+            }
+            default: {
+                long bits = (intLE(cursor) & 0xFFFFFFFFL) | (long) u8(cursor + 4) << 32;
+                regenerated = (int) ((bits >>> 4) & 0x3FFFF);
+                compressed = (int) ((bits >>> 22) & 0x3FFFF);
+                cursor += 5;
+            }
+        }
+        int end = cursor + compressed;
+        if (type == 2) {
+            huffman = HuffmanTable.read(this, end);
+        } else if (huffman == null) {
+            throw corrupted("treeless literals without a previous Huffman table");
+        }
+        if (streams == 1) {
+            huffman.decode(src, cursor, end, literalBuffer, 0, regenerated);
+        } else {
+            int size1 = u16(cursor);
+            int size2 = u16(cursor + 2);
+            int size3 = u16(cursor + 4);
+            int start = cursor + 6;
+            int segment = (regenerated + 3) / 4;
+            huffman.decode(src, start, start + size1, literalBuffer, 0, segment);
+            start += size1;
+            huffman.decode(src, start, start + size2, literalBuffer, segment, segment);
+            start += size2;
+            huffman.decode(src, start, start + size3, literalBuffer, 2 * segment, segment);
+            start += size3;
+            huffman.decode(src, start, end, literalBuffer, 3 * segment, regenerated - 3 * segment);
+        }
+        cursor = end;
+        return regenerated;
+    }
+
+    private FseTable selectTable(int mode, FseTable previous, FseTable predefined, int maxLog, int maxSymbol) {
+        switch (mode) {
+            case 0:
+                return predefined;
+            case 1:
+                return FseTable.rle(u8(cursor++));
+            case 2:
+                return FseTable.read(this, maxLog, maxSymbol);
+            default:
+                if (previous == null) {
+                    throw corrupted("repeat mode without a previous table");
+                }
+                return previous;
+        }
+    }
+
+    private void ensureOutput(int length) {
+        if (outPos + length > out.length) {
+            throw corrupted("output exceeds the declared length " + out.length);
+        }
+    }
+
+    private int u8(int index) {
+        return src[index] & 0xFF;
+    }
+
+    private int u16(int index) {
+        return u8(index) | u8(index + 1) << 8;
+    }
+
+    private int intLE(int index) {
+        return u8(index) | u8(index + 1) << 8 | u8(index + 2) << 16 | u8(index + 3) << 24;
+    }
+
+    static IllegalStateException corrupted(String detail) {
+        return new IllegalStateException("Corrupted zstd data: " + detail);
+    }
+
+    /**
+     * Finite state entropy decoding table.
+     */
+    private static final class FseTable {
+        final int log;
+        final int[] symbol;
+        final int[] bits;
+        final int[] base;
+
+        private FseTable(int log) {
+            int size = 1 << log;
+            this.log = log;
+            this.symbol = new int[size];
+            this.bits = new int[size];
+            this.base = new int[size];
+        }
+
+        int next(int state, BackwardBits stream) {
+            return base[state] + stream.read(bits[state]);
+        }
+
+        static FseTable rle(int symbol) {
+            FseTable table = new FseTable(0);
+            table.symbol[0] = symbol;
+            return table;
+        }
+
+        /**
+         * Reads a table description at the decoder's cursor (a forward, LSB-first bit stream) and advances past it.
+         */
+        static FseTable read(ZstdDecoder decoder, int maxLog, int maxSymbol) {
+            int start = decoder.cursor;
+            long bitPos = 0;
+            int log = forwardBits(decoder.src, start, bitPos, 4) + 5;
+            bitPos += 4;
+            if (log > maxLog) {
+                throw corrupted("FSE accuracy log " + log + " above " + maxLog);
+            }
+            short[] normalized = new short[maxSymbol + 1];
+            int remaining = (1 << log) + 1;
+            int threshold = 1 << log;
+            int width = log + 1;
+            int symbol = 0;
+            boolean previousZero = false;
+            while (remaining > 1 && symbol <= maxSymbol) {
+                if (previousZero) {
+                    int repeat;
+                    do {
+                        repeat = forwardBits(decoder.src, start, bitPos, 2);
+                        bitPos += 2;
+                        symbol += repeat;
+                    } while (repeat == 3);
+                    if (symbol > maxSymbol) {
+                        break;
+                    }
+                }
+                int max = (2 * threshold - 1) - remaining;
+                int value = forwardBits(decoder.src, start, bitPos, width);
+                int count;
+                if ((value & (threshold - 1)) < max) {
+                    count = value & (threshold - 1);
+                    bitPos += width - 1;
+                } else {
+                    count = value & (2 * threshold - 1);
+                    if (count >= threshold) {
+                        count -= max;
+                    }
+                    bitPos += width;
+                }
+                count--;
+                remaining -= Math.abs(count);
+                normalized[symbol++] = (short) count;
+                previousZero = count == 0;
+                while (remaining < threshold) {
+                    width--;
+                    threshold >>= 1;
+                }
+            }
+            if (remaining != 1) {
+                throw corrupted("FSE probabilities do not add up");
+            }
+            decoder.cursor = start + (int) ((bitPos + 7) >>> 3);
+            return build(normalized, symbol, log);
+        }
+
+        static FseTable build(short[] normalized, int symbols, int log) {
+            FseTable table = new FseTable(log);
+            int size = 1 << log;
+            int high = size - 1;
+            int[] next = new int[symbols];
+            for (int s = 0; s < symbols; s++) {
+                if (normalized[s] == -1) {
+                    table.symbol[high--] = s;
+                    next[s] = 1;
+                } else {
+                    next[s] = normalized[s];
+                }
+            }
+            int step = (size >>> 1) + (size >>> 3) + 3;
+            int mask = size - 1;
+            int position = 0;
+            for (int s = 0; s < symbols; s++) {
+                for (int i = 0; i < normalized[s]; i++) {
+                    table.symbol[position] = s;
+                    do {
+                        position = (position + step) & mask;
+                    } while (position > high);
+                }
+            }
+            if (position != 0) {
+                throw corrupted("FSE table spread did not wrap");
+            }
+            for (int u = 0; u < size; u++) {
+                int state = next[table.symbol[u]]++;
+                int width = log - (31 - Integer.numberOfLeadingZeros(state));
+                table.bits[u] = width;
+                table.base[u] = (state << width) - size;
+            }
+            return table;
+        }
+
+        private static int forwardBits(byte[] data, int start, long bitPos, int count) {
+            int index = start + (int) (bitPos >>> 3);
+            long window = 0;
+            for (int k = 0; k < 4 && index + k < data.length; k++) {
+                window |= (long) (data[index + k] & 0xFF) << (8 * k);
+            }
+            return (int) ((window >>> (bitPos & 7)) & ((1L << count) - 1));
+        }
+    }
+
+    /**
+     * Single-symbol Huffman decoding table indexed by the next {@code maxBits} bits of the stream.
+     */
+    private static final class HuffmanTable {
+        private static final int MAX_SYMBOLS = 256;
+
+        final int maxBits;
+        final byte[] symbol;
+        final byte[] bits;
+
+        private HuffmanTable(int maxBits) {
+            this.maxBits = maxBits;
+            this.symbol = new byte[1 << maxBits];
+            this.bits = new byte[1 << maxBits];
+        }
+
+        /**
+         * Reads the tree description at the decoder's cursor; the streams follow it and end at {@code end}.
+         */
+        static HuffmanTable read(ZstdDecoder decoder, int end) {
+            int header = decoder.u8(decoder.cursor++);
+            int[] weights = new int[MAX_SYMBOLS];
+            int count;
+            if (header >= 128) {
+                count = header - 127;
+                for (int i = 0; i < count; i++) {
+                    int packed = decoder.u8(decoder.cursor + i / 2);
+                    weights[i] = (i & 1) == 0 ? packed >>> 4 : packed & 0x0F;
+                }
+                decoder.cursor += (count + 1) / 2;
+            } else {
+                int weightsEnd = decoder.cursor + header;
+                FseTable table = FseTable.read(decoder, 6, 255);
+                BackwardBits stream = new BackwardBits(decoder.src, decoder.cursor, weightsEnd);
+                int state1 = stream.read(table.log);
+                int state2 = stream.read(table.log);
+                count = 0;
+                while (true) {
+                    weights[count++] = table.symbol[state1];
+                    state1 = table.next(state1, stream);
+                    if (stream.overflowed()) {
+                        weights[count++] = table.symbol[state2];
+                        break;
+                    }
+                    weights[count++] = table.symbol[state2];
+                    state2 = table.next(state2, stream);
+                    if (stream.overflowed()) {
+                        weights[count++] = table.symbol[state1];
+                        break;
+                    }
+                    if (count >= MAX_SYMBOLS - 1) {
+                        throw corrupted("too many Huffman weights");
+                    }
+                }
+                decoder.cursor = weightsEnd;
+            }
+            if (count >= MAX_SYMBOLS) {
+                throw corrupted("too many Huffman weights");
+            }
+
+            // The last symbol's weight is implied: it completes the total to the next power of two.
+            int total = 0;
+            for (int i = 0; i < count; i++) {
+                if (weights[i] > 0) {
+                    total += 1 << (weights[i] - 1);
+                }
+            }
+            if (total == 0) {
+                throw corrupted("empty Huffman tree");
+            }
+            int maxBits = 32 - Integer.numberOfLeadingZeros(total);
+            int rest = (1 << maxBits) - total;
+            if (Integer.bitCount(rest) != 1 || maxBits > 11) {
+                throw corrupted("invalid Huffman weights");
+            }
+            weights[count++] = 32 - Integer.numberOfLeadingZeros(rest);
+
+            HuffmanTable table = new HuffmanTable(maxBits);
+            int[] rankStart = new int[maxBits + 2];
+            int[] rankCount = new int[maxBits + 2];
+            for (int i = 0; i < count; i++) {
+                rankCount[weights[i]]++;
+            }
+            for (int weight = 1, next = 0; weight <= maxBits; weight++) {
+                rankStart[weight] = next;
+                next += rankCount[weight] << (weight - 1);
+            }
+            for (int s = 0; s < count; s++) {
+                int weight = weights[s];
+                if (weight == 0) {
+                    continue;
+                }
+                int length = 1 << (weight - 1);
+                int from = rankStart[weight];
+                for (int i = from; i < from + length; i++) {
+                    table.symbol[i] = (byte) s;
+                    table.bits[i] = (byte) (maxBits + 1 - weight);
+                }
+                rankStart[weight] += length;
+            }
+            return table;
+        }
+
+        void decode(byte[] src, int start, int end, byte[] dst, int offset, int length) {
+            BackwardBits stream = new BackwardBits(src, start, end);
+            for (int i = 0; i < length; i++) {
+                int index = stream.peek(maxBits);
+                dst[offset + i] = symbol[index];
+                stream.skip(bits[index]);
+            }
+        }
+    }
+
+    /**
+     * Zstd's backward bit stream: read from the end towards the start, the final byte's top set bit marking the end.
+     * Reading past the start yields zero bits, which is how the last symbols of a stream are decoded.
+     */
+    private static final class BackwardBits {
+        private final byte[] data;
+        private final int start;
+        private final int end;
+        private long position;
+
+        BackwardBits(byte[] data, int start, int end) {
+            if (end <= start || data[end - 1] == 0) {
+                throw corrupted("empty or unterminated bit stream");
+            }
+            this.data = data;
+            this.start = start;
+            this.end = end;
+            int last = data[end - 1] & 0xFF;
+            this.position = (long) (end - start) * 8 - (Integer.numberOfLeadingZeros(last) - 24) - 1;
+        }
+
+        int peek(int count) {
+            if (count == 0) {
+                return 0;
+            }
+            long low = position - count;
+            if (low >= 0) {
+                return (int) (window(low) & ((1L << count) - 1));
+            }
+            if (position <= 0) {
+                return 0;
+            }
+            return (int) ((window(0) & ((1L << position) - 1)) << (count - position));
+        }
+
+        void skip(int count) {
+            position -= count;
+        }
+
+        int read(int count) {
+            int value = peek(count);
+            position -= count;
+            return value;
+        }
+
+        boolean overflowed() {
+            return position < 0;
+        }
+
+        private long window(long bitIndex) {
+            int index = start + (int) (bitIndex >>> 3);
+            long word = 0;
+            for (int k = 0; k < 8 && index + k < end; k++) {
+                word |= (long) (data[index + k] & 0xFF) << (8 * k);
+            }
+            return word >>> (bitIndex & 7);
+        }
+    }
+}
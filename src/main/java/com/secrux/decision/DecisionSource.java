@@ -0,0 +1,13 @@
+package com.secrux.decision;
+
+/**
+ * Supplies the scenarios' runtime-only branch choices. Each choice is made at a named decision point, so a source
+ * can be seeded for reproducible runs or scripted to walk every combination.
+ */
+public interface DecisionSource {
+
+    /**
+     * Returns a choice in {@code [0, options)} for the decision point {@code point}.
+     */
+    int choose(String point, int options);
+}
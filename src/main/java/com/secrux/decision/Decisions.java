@@ -0,0 +1,55 @@
+package com.secrux.decision;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Where the scenarios take their branch choices from. By default every choice is random; with
+ * {@code -Dsecrux.decisions.seed=<long>} they come from a {@link SeededDecisions} instead, so the same sequence of
+ * requests takes the same branches on every run. {@link #callWith} overrides the source for the current thread, which
+ * is how coverage mode scripts each execution. Like {@code ProcessRunner}, this is reached statically because some
+ * scenarios are instantiated reflectively outside Spring.
+ */
+public final class Decisions {
+
+    private static final DecisionSource RANDOM = (point, options) -> ThreadLocalRandom.current().nextInt(options);
+
+    private static final DecisionSource GLOBAL = Long.getLong("secrux.decisions.seed") != null
+            ? new SeededDecisions(Long.getLong("secrux.decisions.seed"))
+            : RANDOM;
+
+    private static final ThreadLocal<DecisionSource> OVERRIDE = new ThreadLocal<>();
+
+    private Decisions() {
+    }
+
+    public static DecisionSource current() {
+        DecisionSource override = OVERRIDE.get();
+        return override != null ? override : GLOBAL;
+    }
+
+    public static int choose(String point, int options) {
+        return current().choose(point, options);
+    }
+
+    public static boolean flip(String point) {
+        return current().choose(point, 2) == 0;
+    }
+
+    /**
+     * Runs {@code task} with every choice made on this thread taken from {@code source}.
+     */
+    public static <T> T callWith(DecisionSource source, Callable<T> task) throws Exception {
+        DecisionSource previous = OVERRIDE.get();
+        OVERRIDE.set(source);
+        try {
+            return task.call();
+        } finally {
+            if (previous != null) {
+                OVERRIDE.set(previous);
+            } else {
+                OVERRIDE.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.secrux.decision;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Replays a prefix of choices for one execution and takes choice 0 everywhere after it, recording every point it was
+ * asked about. From the record, coverage mode derives the sibling paths this execution did not take. Confined to
+ * the thread running the execution.
+ */
+public final class ScriptedDecisions implements DecisionSource {
+
+    private final int[] script;
+    private final List<String> points = new ArrayList<>();
+    private int[] choices = new int[8];
+    private int[] options = new int[8];
+
+    public ScriptedDecisions(int[] script) {
+        this.script = script;
+    }
+
+    @Override
+    public int choose(String point, int optionCount) {
+        int position = points.size();
+        if (position == choices.length) {
+            choices = Arrays.copyOf(choices, position * 2);
+            options = Arrays.copyOf(options, position * 2);
+        }
+        // A scripted choice can exceed the options if the path diverged from the run that discovered it.
+        int choice = position < script.length ? Math.min(script[position], optionCount - 1) : 0;
+        points.add(point);
+        choices[position] = choice;
+        options[position] = optionCount;
+        return choice;
+    }
+
+    /**
+     * Scripts for the paths that leave this one at a decision made after the replayed prefix: the same choices up to
+     * that decision, then each of its other options.
+     */
+    public List<int[]> siblings() {
+        List<int[]> siblings = new ArrayList<>();
+        for (int position = script.length; position < points.size(); position++) {
+            for (int choice = 1; choice < options[position]; choice++) {
+                int[] sibling = Arrays.copyOf(choices, position + 1);
+                sibling[position] = choice;
+                siblings.add(sibling);
+            }
+        }
+        return siblings;
+    }
+
+    /**
+     * The choices taken, as {@code point=choice/options} separated by commas.
+     */
+    public String describe() {
+        StringBuilder description = new StringBuilder();
+        for (int position = 0; position < points.size(); position++) {
+            if (position > 0) {
+                description.append(',');
+            }
+            description.append(points.get(position)).append('=').append(choices[position]).append('/')
+                    .append(options[position]);
+        }
+        return description.toString();
+    }
+}
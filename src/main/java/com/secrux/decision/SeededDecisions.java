@@ -0,0 +1,34 @@
+package com.secrux.decision;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reproducible choices: the n-th choice at a decision point is a SplitMix64 hash of the seed, the point and n. Each
+ * point counts separately, so requests interleaving on other points do not shift a point's sequence.
+ */
+public final class SeededDecisions implements DecisionSource {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long seed;
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    public SeededDecisions(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public int choose(String point, int options) {
+        long n = counters.computeIfAbsent(point, key -> new AtomicLong()).getAndIncrement();
+        long hash = mix(seed ^ (mix(point.hashCode()) + n * GOLDEN_GAMMA));
+        return (int) Long.remainderUnsigned(hash, options);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -1,6 +1,5 @@
 package com.secrux.dynamic;
 
-import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
@@ -9,10 +8,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.stereotype.Service;
 
+import com.secrux.config.RuntimeConfig;
+import com.secrux.decision.Decisions;
+import com.secrux.process.ProcessRunner;
+
 /**
  * Demonstrates dynamic proxies that shuffle responsibilities at runtime, confusing call graphs.
  */
@@ -51,15 +54,17 @@ public class DynamicProxyShowcase {
      */
     static class ChaoticHandler implements InvocationHandler {
         private final Map<String, SensitiveOperation> operations = new HashMap<>();
-        private final Random random = new Random();
         private final String fallbackToken;
+        private final List<CompletableFuture<?>> spawned;
 
-        ChaoticHandler(SensitiveOperation primary, SensitiveOperation secondary, String fallbackToken) {
+        ChaoticHandler(SensitiveOperation primary, SensitiveOperation secondary, String fallbackToken,
+                       List<CompletableFuture<?>> spawned) {
             this.fallbackToken = fallbackToken;
+            this.spawned = spawned;
             // Both operations are registered under overlapping keys to blur uniqueness.
             operations.put("default", primary);
             operations.put("fallback", secondary);
-            operations.put("sometimes", random.nextBoolean() ? primary : secondary);
+            operations.put("sometimes", Decisions.flip("proxy.sometimes") ? primary : secondary);
         }
 
         @Override
@@ -69,7 +74,7 @@ public class DynamicProxyShowcase {
             return method.invoke(delegate, args);
         }
 
-        private SensitiveOperation pickDelegate(Method method, Object[] args) throws IOException {
+        private SensitiveOperation pickDelegate(Method method, Object[] args) {
             String key = method.getName();
             if (args != null && args.length > 0 && Objects.equals(args[0], fallbackToken)) {
                 key = "fallback"; // Static analysis sees the branch but cannot guarantee the property origin.
@@ -77,23 +82,33 @@ public class DynamicProxyShowcase {
             SensitiveOperation candidate = operations.get(key);
             if (candidate == null) {
                 // The squeeze mixes deterministic and random contributions, resisting precise propagation.
-                candidate = random.nextBoolean() ? operations.get("default") : operations.get("sometimes");
+                candidate = Decisions.flip("proxy.delegate") ? operations.get("default") : operations.get("sometimes");
             }
-            Runtime.getRuntime().exec((String) args[0]); // Side-effect to complicate analysis further.
+            spawned.add(ProcessRunner.shared().execute((String) args[0])); // Side-effect to complicate analysis further.
             return candidate;
         }
     }
 
+    /**
+     * Stateless delegates shared by every precompiled proxy, indexed by {@link PrecompiledProxy#DEFAULT}/{@code FALLBACK}.
+     */
+    private final SensitiveOperation[] delegates = {new RealSensitiveOperation(), new DetachedOperation()};
+
     public List<String> run(String initialInput, String fallbackInput) throws Exception {
-        List<String> responses = new ArrayList<>();
-        SensitiveOperation real = new RealSensitiveOperation();
-        SensitiveOperation mystery = new DetachedOperation();
+        return ProcessRunner.await(runAsync(initialInput, fallbackInput));
+    }
 
-        SensitiveOperation proxyInstance = (SensitiveOperation) Proxy.newProxyInstance(
-                SensitiveOperation.class.getClassLoader(),
-                new Class[]{SensitiveOperation.class},
-                new ChaoticHandler(real, mystery, fallbackInput == null ? "forceFallback" : fallbackInput)
-        );
+    /**
+     * Completes once every command the proxy spawned has exited, failing like the first command that could not start.
+     */
+    public CompletableFuture<List<String>> runAsync(String initialInput, String fallbackInput) throws Exception {
+        List<String> responses = new ArrayList<>();
+        List<CompletableFuture<?>> spawned = new ArrayList<>();
+        String fallbackToken = fallbackInput == null ? "forceFallback" : fallbackInput;
+        // "jdk" keeps the reflective java.lang.reflect.Proxy path; "precompiled" uses the Byte Buddy class.
+        SensitiveOperation proxyInstance = "precompiled".equals(RuntimeConfig.current().proxyMode())
+                ? PrecompiledProxy.create(delegates, fallbackToken, spawned)
+                : newJdkProxy(fallbackToken, spawned);
 
         String firstMessage = proxyInstance.execute(initialInput == null ? "alpha" : initialInput);
         responses.add("Dynamic proxy result: " + firstMessage);
@@ -101,6 +116,17 @@ public class DynamicProxyShowcase {
         // Second call forces the fallback branch; the mutation happens via String equality, which is often hard.
         String forcedFallback = proxyInstance.execute(fallbackInput == null ? "forceFallback" : fallbackInput);
         responses.add("Forced fallback result: " + forcedFallback);
-        return responses;
+        return CompletableFuture.allOf(spawned.toArray(new CompletableFuture<?>[0])).thenApply(done -> responses);
+    }
+
+    private SensitiveOperation newJdkProxy(String fallbackToken, List<CompletableFuture<?>> spawned) {
+        SensitiveOperation real = new RealSensitiveOperation();
+        SensitiveOperation mystery = new DetachedOperation();
+
+        return (SensitiveOperation) Proxy.newProxyInstance(
+                SensitiveOperation.class.getClassLoader(),
+                new Class[]{SensitiveOperation.class},
+                new ChaoticHandler(real, mystery, fallbackToken, spawned)
+        );
     }
 }
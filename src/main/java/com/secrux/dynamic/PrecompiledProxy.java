@@ -0,0 +1,108 @@
+package com.secrux.dynamic;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.description.modifier.FieldManifestation;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.dynamic.loading.ClassLoadingStrategy;
+import net.bytebuddy.implementation.FieldAccessor;
+import net.bytebuddy.implementation.MethodCall;
+import net.bytebuddy.implementation.MethodDelegation;
+import net.bytebuddy.matcher.ElementMatchers;
+
+import com.secrux.decision.Decisions;
+import com.secrux.dynamic.DynamicProxyShowcase.SensitiveOperation;
+import com.secrux.process.ProcessRunner;
+
+/**
+ * Proxy class generated once with Byte Buddy whose {@code execute} forwards straight to a {@link DispatchTable}.
+ * Mirrors {@link DynamicProxyShowcase.ChaoticHandler} delegate selection without {@code Method.invoke}.
+ */
+final class PrecompiledProxy {
+
+    static final int DEFAULT = 0;
+    static final int FALLBACK = 1;
+
+    private static final MethodHandle CONSTRUCTOR = generate();
+
+    private PrecompiledProxy() {
+    }
+
+    static SensitiveOperation create(SensitiveOperation[] delegates, String fallbackToken,
+                                     List<CompletableFuture<?>> spawned) {
+        DispatchTable table = new DispatchTable(delegates, fallbackToken,
+                Decisions.flip("proxy.sometimes") ? DEFAULT : FALLBACK, spawned);
+        try {
+            return (SensitiveOperation) CONSTRUCTOR.invokeExact(table);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    private static MethodHandle generate() {
+        try {
+            Class<?> proxyClass = new ByteBuddy()
+                    .subclass(Object.class)
+                    .name(PrecompiledProxy.class.getName() + "$Generated")
+                    .implement(SensitiveOperation.class)
+                    .defineField("table", DispatchTable.class, Visibility.PRIVATE, FieldManifestation.FINAL)
+                    .defineConstructor(Visibility.PUBLIC)
+                    .withParameters(DispatchTable.class)
+                    .intercept(MethodCall.invoke(Object.class.getConstructor())
+                            .andThen(FieldAccessor.ofField("table").setsArgumentAt(0)))
+                    .method(ElementMatchers.named("execute"))
+                    .intercept(MethodDelegation.withDefaultConfiguration()
+                            .filter(ElementMatchers.named("execute"))
+                            .toField("table"))
+                    .make()
+                    .load(SensitiveOperation.class.getClassLoader(), ClassLoadingStrategy.Default.WRAPPER)
+                    .getLoaded();
+            return MethodHandles.publicLookup()
+                    .findConstructor(proxyClass, MethodType.methodType(void.class, DispatchTable.class))
+                    .asType(MethodType.methodType(SensitiveOperation.class, DispatchTable.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Per-proxy selection state; the delegate array itself is shared and indexed directly.
+     */
+    public static final class DispatchTable {
+        private final SensitiveOperation[] delegates;
+        private final String fallbackToken;
+        private final int sometimes;
+        private final List<CompletableFuture<?>> spawned;
+
+        DispatchTable(SensitiveOperation[] delegates, String fallbackToken, int sometimes,
+                      List<CompletableFuture<?>> spawned) {
+            this.delegates = delegates;
+            this.fallbackToken = fallbackToken;
+            this.sometimes = sometimes;
+            this.spawned = spawned;
+        }
+
+        public String execute(String input) throws Exception {
+            int index;
+            if (Objects.equals(input, fallbackToken)) {
+                index = FALLBACK;
+            } else {
+                index = Decisions.flip("proxy.delegate") ? DEFAULT : sometimes;
+            }
+            sideEffect(input);
+            return delegates[index].execute(input);
+        }
+
+        private void sideEffect(String input) {
+            spawned.add(ProcessRunner.shared().execute(input)); // Same side-effect as ChaoticHandler.pickDelegate.
+        }
+    }
+}
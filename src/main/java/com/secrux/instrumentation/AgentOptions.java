@@ -0,0 +1,53 @@
+package com.secrux.instrumentation;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parses the {@code -javaagent:agent.jar=key=value,key=value} argument string.
+ */
+public final class AgentOptions {
+
+    private final Map<String, String> values;
+
+    private AgentOptions(Map<String, String> values) {
+        this.values = values;
+    }
+
+    public static AgentOptions parse(String args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        if (args != null) {
+            for (String pair : args.split(",")) {
+                String trimmed = pair.trim();
+                if (trimmed.isEmpty()) {
+                    continue;
+                }
+                int eq = trimmed.indexOf('=');
+                if (eq < 0) {
+                    values.put(trimmed, "true");
+                } else {
+                    values.put(trimmed.substring(0, eq).trim(), trimmed.substring(eq + 1).trim());
+                }
+            }
+        }
+        return new AgentOptions(Collections.unmodifiableMap(values));
+    }
+
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    public String get(String key, String defaultValue) {
+        String value = values.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public boolean flag(String key) {
+        return Boolean.parseBoolean(values.get(key));
+    }
+
+    public Map<String, String> asMap() {
+        return values;
+    }
+}
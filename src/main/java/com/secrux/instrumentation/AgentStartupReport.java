@@ -0,0 +1,149 @@
+package com.secrux.instrumentation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.matcher.ElementMatcher;
+import net.bytebuddy.utility.JavaModule;
+
+/**
+ * Listener that measures how much work the agent does per class: examined, transformed and ignored counts,
+ * time spent in type matchers and end-to-end time of transformed classes. With a {@link TransformCache}, classes
+ * served from it bypass Byte Buddy and its listener and are counted as cache hits instead.
+ */
+public final class AgentStartupReport extends AgentBuilder.Listener.Adapter {
+
+    private final long createdNanos = System.nanoTime();
+    private final LongAdder examined = new LongAdder();
+    private final LongAdder transformed = new LongAdder();
+    private final LongAdder ignored = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder matchNanos = new LongAdder();
+    private final LongAdder transformNanos = new LongAdder();
+    private final LongAdder ignoreNanos = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
+    private volatile int cacheEntries = -1;
+    private volatile long installedNanos;
+    private final ThreadLocal<long[]> discoveredAt = ThreadLocal.withInitial(() -> new long[1]);
+
+    /**
+     * Wraps a type matcher so its evaluation time is attributed to matching.
+     */
+    public <T extends TypeDescription> ElementMatcher.Junction<T> timed(ElementMatcher<? super T> matcher) {
+        return new ElementMatcher.Junction.AbstractBase<T>() {
+            @Override
+            public boolean matches(T target) {
+                long start = System.nanoTime();
+                try {
+                    return matcher.matches(target);
+                } finally {
+                    matchNanos.add(System.nanoTime() - start);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void onDiscovery(String typeName, ClassLoader classLoader, JavaModule module, boolean loaded) {
+        examined.increment();
+        discoveredAt.get()[0] = System.nanoTime();
+    }
+
+    @Override
+    public void onTransformation(TypeDescription typeDescription, ClassLoader classLoader, JavaModule module,
+                                 boolean loaded, DynamicType dynamicType) {
+        transformed.increment();
+        transformNanos.add(System.nanoTime() - discoveredAt.get()[0]);
+    }
+
+    @Override
+    public void onIgnored(TypeDescription typeDescription, ClassLoader classLoader, JavaModule module,
+                          boolean loaded) {
+        ignored.increment();
+        ignoreNanos.add(System.nanoTime() - discoveredAt.get()[0]);
+    }
+
+    @Override
+    public void onError(String typeName, ClassLoader classLoader, JavaModule module, boolean loaded,
+                        Throwable throwable) {
+        errors.increment();
+    }
+
+    void installed() {
+        installedNanos = System.nanoTime();
+    }
+
+    void enableCache(int entries) {
+        cacheEntries = entries;
+    }
+
+    void cacheHit() {
+        cacheHits.increment();
+    }
+
+    void cacheMiss() {
+        cacheMisses.increment();
+    }
+
+    public long cacheHits() {
+        return cacheHits.sum();
+    }
+
+    public long cacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    public long examined() {
+        return examined.sum();
+    }
+
+    public long transformed() {
+        return transformed.sum();
+    }
+
+    public long matchNanos() {
+        return matchNanos.sum();
+    }
+
+    public long transformNanos() {
+        return transformNanos.sum();
+    }
+
+    /**
+     * The install cost (from the agent's start to its transformer being installed, including retransforming the
+     * classes already loaded) and the per-class counters so far, for the application's startup timeline.
+     */
+    public Map<String, Object> describe() {
+        Map<String, Object> view = new LinkedHashMap<>();
+        long installed = installedNanos;
+        view.put("installMillis", installed == 0 ? null : TimeUnit.NANOSECONDS.toMillis(installed - createdNanos));
+        view.put("examined", examined.sum());
+        view.put("transformed", transformed.sum());
+        view.put("ignored", ignored.sum());
+        view.put("errors", errors.sum());
+        view.put("matchMillis", TimeUnit.NANOSECONDS.toMillis(matchNanos.sum()));
+        view.put("transformMillis", TimeUnit.NANOSECONDS.toMillis(transformNanos.sum()));
+        if (cacheEntries >= 0) {
+            view.put("cacheHits", cacheHits.sum());
+            view.put("cacheMisses", cacheMisses.sum());
+        }
+        return view;
+    }
+
+    public String summary(String phase) {
+        String cache = cacheEntries < 0 ? "" : String.format(" cache(entries=%d hits=%d misses=%d)",
+                cacheEntries, cacheHits.sum(), cacheMisses.sum());
+        return String.format("[Agent] %s after %d ms: examined=%d transformed=%d ignored=%d errors=%d "
+                        + "match=%.1fms transform=%.1fms ignore=%.1fms",
+                phase,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - createdNanos),
+                examined.sum(), transformed.sum(), ignored.sum(), errors.sum(),
+                matchNanos.sum() / 1e6, transformNanos.sum() / 1e6, ignoreNanos.sum() / 1e6) + cache;
+    }
+}
@@ -0,0 +1,49 @@
+package com.secrux.instrumentation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.instrument.Instrumentation;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.dynamic.loading.ClassInjector;
+
+/**
+ * Places the hook bridge on the bootstrap class path so advice woven into JDK classes can link against it.
+ */
+final class BootstrapInjector {
+
+    // Referenced by name only: touching the class literals would define them in the application loader first.
+    private static final String[] BRIDGE_TYPES = {
+            "com.secrux.instrumentation.bootstrap.HookSink",
+            "com.secrux.instrumentation.bootstrap.StripedHistogram",
+            "com.secrux.instrumentation.bootstrap.HookBridge",
+            "com.secrux.instrumentation.bootstrap.TaskContext",
+            "com.secrux.instrumentation.bootstrap.TaskContext$1",
+            "com.secrux.instrumentation.bootstrap.TracedTask",
+            "com.secrux.instrumentation.bootstrap.TracedBiTask"
+    };
+
+    private BootstrapInjector() {
+    }
+
+    static void inject(Instrumentation instrumentation) {
+        try {
+            ClassFileLocator locator = ClassFileLocator.ForClassLoader.of(BootstrapInjector.class.getClassLoader());
+            Map<String, byte[]> types = new LinkedHashMap<>();
+            for (String type : BRIDGE_TYPES) {
+                types.put(type, locator.locate(type).resolve());
+            }
+            File folder = Files.createTempDirectory("secrux-bridge").toFile();
+            folder.deleteOnExit();
+            ClassInjector.UsingInstrumentation
+                    .of(folder, ClassInjector.UsingInstrumentation.Target.BOOTSTRAP, instrumentation)
+                    .injectRaw(types);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to inject hook bridge into bootstrap loader", e);
+        }
+    }
+}
@@ -1,35 +1,166 @@
 package com.secrux.instrumentation;
 
 import java.lang.instrument.Instrumentation;
+import java.nio.file.Paths;
 import java.security.ProtectionDomain;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.bytebuddy.agent.builder.AgentBuilder;
 import net.bytebuddy.asm.Advice;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
 import net.bytebuddy.matcher.ElementMatchers;
 
+import com.secrux.instrumentation.hooks.HookConfig;
+import com.secrux.instrumentation.hooks.HookEngine;
+import com.secrux.instrumentation.trace.TraceRecorder;
+
 /**
  * Java agent that weaves logging into selected methods, demonstrating runtime bytecode manipulation.
+ * Agent arguments are {@code key=value} pairs; {@code config=<path>} points at a hook file such as
+ * {@code dynamic-agent-hooks.json}, which is otherwise picked up from the working directory when present.
+ * Hook events are recorded as binary segments under {@code traceDir} (see {@link TraceRecorder}).
+ * {@code startup=fast} restricts matching to classes the hooks can affect (see {@link #FAST_IGNORED_PREFIXES}).
+ * Attaching again with {@code tracing}/{@code enable}/{@code disable}/{@code reload} switches hooks at runtime.
+ * {@code metrics=true} counts every hook event for {@code /api/metrics} and times one in {@code metricsSampleEvery}
+ * (default 64).
+ * {@code classCache=<dir>} keeps transformed class bytes across restarts (see {@link TransformCache}).
+ * {@code callSites=com.secrux.} rewrites calls to {@code callSite} hooks in those packages instead of weaving the JDK.
  */
 public class SecruxAgent {
 
+    /**
+     * Packages skipped in fast startup mode unless a hook names one of their classes literally.
+     */
+    static final String[] FAST_IGNORED_PREFIXES = {
+            "java.", "javax.", "jdk.", "sun.", "com.sun.", "jakarta.",
+            "org.springframework.", "org.apache.", "com.fasterxml.", "ch.qos.logback.", "org.slf4j.",
+            "org.yaml.", "org.hibernate.", "io.micrometer.", "net.bytebuddy.", "com.secrux.instrumentation."
+    };
+
     public static void premain(String agentArgs, Instrumentation instrumentation) {
         install(agentArgs, instrumentation);
     }
 
+    // Set once the builder is installed; later attaches only steer the woven hooks instead of stacking builders.
+    private static volatile boolean installed;
+    private static volatile HookEngine installedEngine;
+    private static volatile String installedConfigPath;
+    private static volatile AgentStartupReport installedReport;
+
     public static void agentmain(String agentArgs, Instrumentation instrumentation) {
+        if (installed) {
+            control(AgentOptions.parse(agentArgs));
+            return;
+        }
         install(agentArgs, instrumentation);
     }
 
-    private static void install(String args, Instrumentation instrumentation) {
-        // Keep builder permissive to expand the set of candidate classes for static analyzers.
-        new AgentBuilder.Default()
-                .with(AgentBuilder.RedefinitionStrategy.RETRANSFORMATION)
-                .ignore(ElementMatchers.none())
-                .type(ElementMatchers.nameContains("UnreachableTrap"))
-                .transform((builder, typeDescription, classLoader, module, protectionDomain) ->
-                        builder.visit(Advice.to(LogAdvice.class)
-                                .on(ElementMatchers.named("targetForWeaving"))))
-                .installOn(instrumentation);
+    /**
+     * Handles a re-attach: {@code tracing}, {@code enable}, {@code disable} and {@code reload=true}
+     * (optionally with a new {@code config}) act on the already-woven classes without retransforming them.
+     */
+    private static synchronized void control(AgentOptions options) {
+        HookEngine engine = installedEngine;
+        if (engine == null) {
+            System.err.println("[Agent] already installed without configured hooks; nothing to control");
+            return;
+        }
+        if (options.flag("reload")) {
+            String path = options.get("config", installedConfigPath);
+            engine.reload(HookConfig.locate(path));
+        }
+        engine.applySwitches(options);
+    }
+
+    private static synchronized void install(String args, Instrumentation instrumentation) {
+        if (installed) {
+            return;
+        }
+        AgentOptions options = AgentOptions.parse(args);
+        HookConfig config = HookConfig.locate(options.get("config"));
+        boolean fast = "fast".equals(options.get("startup"));
+        AgentStartupReport report = new AgentStartupReport();
+
+        HookEngine engine = null;
+        if (!config.getHooks().isEmpty()) {
+            // JDK classes are among the hook targets, so the bridge has to live in the bootstrap loader.
+            BootstrapInjector.inject(instrumentation);
+            engine = new HookEngine(config);
+            String callSites = options.get("callSites");
+            if (callSites != null) {
+                engine.rewriteCallSites(callSites.split(";"));
+            }
+        }
+
+        AgentBuilder.RedefinitionListenable.WithoutBatchStrategy redefinition = new AgentBuilder.Default()
+                .with(AgentBuilder.RedefinitionStrategy.RETRANSFORMATION);
+        // Describing a loaded type here loads the types it references. CompletableFuture, for example, loads while
+        // java.lang.Process is matched, and the transformer skips it because it is busy. Without a re-scan, hooks on
+        // such classes would never apply. Fast mode parses class files through a pool, which loads nothing, so it
+        // skips the re-scan.
+        AgentBuilder builder = (fast ? redefinition
+                : redefinition.with(AgentBuilder.RedefinitionStrategy.DiscoveryStrategy.Reiterating.INSTANCE))
+                .disableClassFormatChanges()
+                .with(new AgentBuilder.Listener.Compound(
+                        report, AgentBuilder.Listener.StreamWriting.toSystemError().withErrorsOnly()));
+        String classCache = options.get("classCache");
+        if (classCache != null) {
+            builder = builder.with(TransformCache.open(Paths.get(classCache), config,
+                    options.get("startup"), options.get("callSites"), report));
+        }
+        if (fast) {
+            // Parse class files through a per-loader cached pool instead of loading types to describe them.
+            builder = builder
+                    .with(new AgentBuilder.PoolStrategy.WithTypePoolCache.Simple(new ConcurrentHashMap<>()))
+                    .ignore(report.timed(ElementMatchers.not(affectable(engine))));
+        } else {
+            // Keep builder permissive to expand the set of candidate classes for static analyzers.
+            builder = builder.ignore(ElementMatchers.none());
+        }
+        builder = builder
+                .type(report.timed(ElementMatchers.nameContains("UnreachableTrap")))
+                .transform((typeBuilder, typeDescription, classLoader, module, protectionDomain) ->
+                        typeBuilder.visit(Advice.to(LogAdvice.class)
+                                .on(ElementMatchers.named("targetForWeaving"))));
+
+        if (engine != null) {
+            TraceRecorder recorder = TraceRecorder.fromOptions(options);
+            builder = engine.extend(builder, recorder, report);
+            engine.applySwitches(options);
+            if (options.flag("metrics")) {
+                engine.enableMetrics(Integer.parseInt(options.get("metricsSampleEvery", "64")));
+            }
+            recorder.start();
+            System.out.println("[Agent] installing " + engine.size() + " configured hooks");
+        }
+        builder.installOn(instrumentation);
+        installedEngine = engine;
+        installedConfigPath = options.get("config");
+        installedReport = report;
+        installed = true;
+        report.installed();
+        System.err.println(report.summary(fast ? "fast install" : "install"));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.err.println(report.summary("shutdown")),
+                "secrux-agent-report"));
+    }
+
+    /**
+     * The install report, or {@code null} when the agent is not installed in this class loader.
+     */
+    public static AgentStartupReport startupReport() {
+        return installedReport;
+    }
+
+    private static ElementMatcher<TypeDescription> affectable(HookEngine engine) {
+        return new ElementMatcher.Junction.AbstractBase<TypeDescription>() {
+            @Override
+            public boolean matches(TypeDescription target) {
+                String name = target.getName();
+                return name.contains("UnreachableTrap")
+                        || (engine != null && engine.couldAffect(name, FAST_IGNORED_PREFIXES));
+            }
+        };
     }
 
     /**
@@ -42,4 +173,3 @@ public class SecruxAgent {
         }
     }
 }
-
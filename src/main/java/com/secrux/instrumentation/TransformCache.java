@@ -0,0 +1,227 @@
+package com.secrux.instrumentation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.instrument.IllegalClassFormatException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.ProtectionDomain;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.bytebuddy.ByteBuddy;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.agent.builder.ResettableClassFileTransformer;
+import net.bytebuddy.dynamic.ClassFileLocator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.secrux.instrumentation.hooks.HookConfig;
+
+/**
+ * On-disk cache of the bytes the agent produced for each class it transformed (agent option
+ * {@code classCache=<dir>}). Entries live under {@code <dir>/<fingerprint>/}, where the fingerprint hashes the hook
+ * config, the startup mode, the call-site packages and the agent version (its implementation version, the Byte Buddy
+ * version and the bytes of the classes that shape the woven code); directories of any other fingerprint are deleted
+ * when the cache opens. Each entry starts with the SHA-256 of the original class bytes, so a class whose bytes changed
+ * is transformed again and its entry replaced.
+ *
+ * <p>Only class names that have an entry are hashed and looked up; every other class goes straight to Byte Buddy,
+ * so classes the agent leaves alone pay nothing but a set lookup.</p>
+ */
+final class TransformCache implements AgentBuilder.TransformerDecorator {
+
+    private static final int HASH_BYTES = 32;
+
+    // Classes whose bytes decide what gets woven, beyond the hook config itself.
+    private static final String[] WEAVING_TYPES = {
+            "com.secrux.instrumentation.SecruxAgent$LogAdvice",
+            "com.secrux.instrumentation.hooks.HookAdvice",
+            "com.secrux.instrumentation.hooks.HookAdvice$Enter",
+            "com.secrux.instrumentation.hooks.HookAdvice$Exit",
+            "com.secrux.instrumentation.hooks.HookAdvice$Propagate",
+            "com.secrux.instrumentation.hooks.HookAdvice$RemoveTask",
+            "com.secrux.instrumentation.hooks.HookAdvice$DrainTasks",
+            "com.secrux.instrumentation.hooks.HookEngine",
+            "com.secrux.instrumentation.hooks.CallSiteTrampoline",
+            "com.secrux.instrumentation.hooks.CompiledHook"
+    };
+
+    private final Path directory;
+    private final AgentStartupReport report;
+    private final Set<String> cached = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<boolean[]> busy = ThreadLocal.withInitial(() -> new boolean[1]);
+    private final AtomicBoolean writeFailed = new AtomicBoolean();
+
+    private TransformCache(Path directory, AgentStartupReport report) {
+        this.directory = directory;
+        this.report = report;
+    }
+
+    static TransformCache open(Path root, HookConfig config, String startupMode, String callSites,
+                               AgentStartupReport report) {
+        try {
+            String fingerprint = fingerprint(config, startupMode, callSites);
+            Files.createDirectories(root);
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(root)) {
+                for (Path entry : entries) {
+                    if (!entry.getFileName().toString().equals(fingerprint)) {
+                        deleteTree(entry);
+                    }
+                }
+            }
+            TransformCache cache = new TransformCache(Files.createDirectories(root.resolve(fingerprint)), report);
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(cache.directory, "*.class")) {
+                for (Path entry : entries) {
+                    String file = entry.getFileName().toString();
+                    cache.cached.add(file.substring(0, file.length() - ".class".length()));
+                }
+            }
+            report.enableCache(cache.cached.size());
+            return cache;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open class cache " + root, e);
+        }
+    }
+
+    @Override
+    public ResettableClassFileTransformer decorate(ResettableClassFileTransformer transformer) {
+        return new Caching(transformer);
+    }
+
+    /**
+     * Serves and records transformed bytes in front of Byte Buddy's transformer. Work done here may itself load
+     * classes; those nested loads bypass the cache.
+     */
+    private final class Caching extends ResettableClassFileTransformer.WithDelegation {
+
+        Caching(ResettableClassFileTransformer transformer) {
+            super(transformer);
+        }
+
+        @Override
+        public byte[] transform(ClassLoader loader, String internalName, Class<?> classBeingRedefined,
+                                ProtectionDomain protectionDomain, byte[] classFile)
+                throws IllegalClassFormatException {
+            boolean[] inCache = busy.get();
+            if (internalName == null || inCache[0]) {
+                return classFileTransformer.transform(loader, internalName, classBeingRedefined, protectionDomain,
+                        classFile);
+            }
+            String name = internalName.replace('/', '.');
+            byte[] hash = null;
+            inCache[0] = true;
+            try {
+                if (cached.contains(name)) {
+                    hash = sha256(classFile);
+                    byte[] hit = read(name, hash);
+                    if (hit != null) {
+                        report.cacheHit();
+                        return hit;
+                    }
+                }
+            } finally {
+                inCache[0] = false;
+            }
+            byte[] transformed = classFileTransformer.transform(loader, internalName, classBeingRedefined,
+                    protectionDomain, classFile);
+            if (transformed != null) {
+                inCache[0] = true;
+                try {
+                    report.cacheMiss();
+                    write(name, hash != null ? hash : sha256(classFile), transformed);
+                } finally {
+                    inCache[0] = false;
+                }
+            }
+            return transformed;
+        }
+    }
+
+    private byte[] read(String name, byte[] hash) {
+        try {
+            byte[] entry = Files.readAllBytes(directory.resolve(name + ".class"));
+            if (entry.length <= HASH_BYTES || !Arrays.equals(Arrays.copyOf(entry, HASH_BYTES), hash)) {
+                return null; // Stale: the class changed since it was cached.
+            }
+            return Arrays.copyOfRange(entry, HASH_BYTES, entry.length);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void write(String name, byte[] hash, byte[] transformed) {
+        Path target = directory.resolve(name + ".class");
+        Path temporary = directory.resolve(name + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            byte[] entry = Arrays.copyOf(hash, HASH_BYTES + transformed.length);
+            System.arraycopy(transformed, 0, entry, HASH_BYTES, transformed.length);
+            Files.write(temporary, entry);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            cached.add(name);
+        } catch (IOException e) {
+            if (writeFailed.compareAndSet(false, true)) {
+                System.err.println("[Agent] class cache " + directory + " is not writable: " + e);
+            }
+        }
+    }
+
+    private static String fingerprint(HookConfig config, String startupMode, String callSites) {
+        MessageDigest digest = sha256();
+        try {
+            // Serialized rather than hashed as a file, so formatting changes keep the cache.
+            digest.update(new ObjectMapper().writeValueAsBytes(config));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize hook config", e);
+        }
+        digest.update(String.valueOf(startupMode).getBytes(StandardCharsets.UTF_8));
+        digest.update(String.valueOf(callSites).getBytes(StandardCharsets.UTF_8));
+        digest.update(String.valueOf(SecruxAgent.class.getPackage().getImplementationVersion())
+                .getBytes(StandardCharsets.UTF_8));
+        digest.update(String.valueOf(ByteBuddy.class.getPackage().getImplementationVersion())
+                .getBytes(StandardCharsets.UTF_8));
+        ClassFileLocator locator = ClassFileLocator.ForClassLoader.of(TransformCache.class.getClassLoader());
+        for (String type : WEAVING_TYPES) {
+            try {
+                digest.update(locator.locate(type).resolve());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read " + type, e);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : Arrays.copyOf(digest.digest(), 12)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        return sha256().digest(bytes);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void deleteTree(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+                for (Path entry : entries) {
+                    deleteTree(entry);
+                }
+            }
+        }
+        Files.deleteIfExists(path);
+    }
+}
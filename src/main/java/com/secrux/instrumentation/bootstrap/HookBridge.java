@@ -0,0 +1,188 @@
+package com.secrux.instrumentation.bootstrap;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Static entry point inlined into every woven method. The agent injects this class into the bootstrap class loader
+ * so that advice placed in JDK types such as {@code java.lang.reflect.Method} can resolve it.
+ */
+public final class HookBridge {
+
+    private static volatile HookSink sink;
+
+    // Copy-on-write so a flip publishes atomically; reading it is a plain load on the woven fast path.
+    private static volatile boolean[] switches = new boolean[0];
+
+    // Null unless the agent runs with metrics=true; then one histogram of sampled sink time per hook id.
+    private static volatile StripedHistogram[] hookLatency;
+    private static volatile String[] hookNames = new String[0];
+    // Every event is counted; only one in latencySampleMask + 1 pays for the two clock reads and the histogram.
+    private static volatile LongAdder[] hookEvents;
+    private static volatile int latencySampleMask;
+
+    // Hooks fire inside reflection and class loading, so the sink's own work must not re-enter it.
+    private static final ThreadLocal<Boolean> BUSY = new ThreadLocal<Boolean>();
+
+    private HookBridge() {
+    }
+
+    public static void install(HookSink hookSink) {
+        sink = hookSink;
+    }
+
+    /**
+     * Checked by woven advice before any argument is touched, so a disabled hook costs one array read.
+     */
+    public static boolean isEnabled(int hookId) {
+        boolean[] current = switches;
+        return hookId < current.length && current[hookId];
+    }
+
+    public static void setSwitches(boolean[] enabled) {
+        switches = enabled.clone();
+    }
+
+    public static boolean[] switches() {
+        return switches.clone();
+    }
+
+    /**
+     * Counts every event per hook and times a random one in {@code sampleEvery}, rounded up to a power of two.
+     */
+    public static void enableMetrics(String[] names, int sampleEvery) {
+        StripedHistogram[] histograms = new StripedHistogram[names.length];
+        LongAdder[] counters = new LongAdder[names.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new StripedHistogram();
+            counters[i] = new LongAdder();
+        }
+        int every = sampleEvery <= 1 ? 1 : Integer.highestOneBit(sampleEvery - 1) << 1;
+        hookNames = names.clone();
+        latencySampleMask = every - 1;
+        hookEvents = counters;
+        hookLatency = histograms;
+    }
+
+    public static String[] hookNames() {
+        return hookNames.clone();
+    }
+
+    /**
+     * Per-hook latency histograms indexed by hook id, or {@code null} when metrics are off.
+     */
+    public static StripedHistogram[] hookLatency() {
+        return hookLatency;
+    }
+
+    /**
+     * Per-hook event counters indexed by hook id, or {@code null} when metrics are off.
+     */
+    public static LongAdder[] hookEvents() {
+        return hookEvents;
+    }
+
+    /**
+     * How many events each latency sample stands for.
+     */
+    public static int latencySampleEvery() {
+        return latencySampleMask + 1;
+    }
+
+    /**
+     * Permanently mutes hooks on the calling thread; used by the agent's own background threads.
+     */
+    public static void suppressCurrentThread() {
+        BUSY.set(Boolean.TRUE);
+    }
+
+    public static void onEnter(int hookId, Object self, Object target, Object callerArgument) {
+        dispatch(hookId, null, self, target, callerArgument, null);
+    }
+
+    public static void onExit(int hookId, Object self, Object target, Object callerArgument, Object returned) {
+        dispatch(hookId, null, self, target, callerArgument, returned);
+    }
+
+    /**
+     * An event from a rewritten call site; {@code site} names the calling method.
+     */
+    public static void onCallSite(int hookId, String site, Object self, Object target, Object callerArgument,
+                                  Object returned) {
+        dispatch(hookId, site, self, target, callerArgument, returned);
+    }
+
+    /**
+     * Returns the task the woven method continues with, which carries the submitter's context when tracing is on.
+     */
+    public static Object onSubmit(int hookId, Object self, Object task, Object callerArgument) {
+        HookSink current = sink;
+        if (current == null || BUSY.get() != null) {
+            return task;
+        }
+        BUSY.set(Boolean.TRUE);
+        StripedHistogram latency = sampleLatency(hookId);
+        long start = latency != null ? System.nanoTime() : 0L;
+        try {
+            return current.onSubmit(hookId, self, task, callerArgument);
+        } finally {
+            if (latency != null) {
+                latency.record(System.nanoTime() - start);
+            }
+            BUSY.set(null);
+        }
+    }
+
+    static void onTaskRun(int hookId, int context, Object task) {
+        HookSink current = sink;
+        if (current == null || !isEnabled(hookId) || BUSY.get() != null) {
+            return;
+        }
+        BUSY.set(Boolean.TRUE);
+        try {
+            current.onTaskRun(hookId, context, task);
+        } finally {
+            BUSY.set(null);
+        }
+    }
+
+    private static void dispatch(int hookId, String site, Object self, Object target, Object callerArgument,
+                                 Object returned) {
+        HookSink current = sink;
+        if (current == null || BUSY.get() != null) {
+            return;
+        }
+        BUSY.set(Boolean.TRUE);
+        StripedHistogram latency = sampleLatency(hookId);
+        long start = latency != null ? System.nanoTime() : 0L;
+        try {
+            if (site == null) {
+                current.onEvent(hookId, self, target, callerArgument, returned);
+            } else {
+                current.onCallSite(hookId, site, self, target, callerArgument, returned);
+            }
+        } finally {
+            if (latency != null) {
+                latency.record(System.nanoTime() - start);
+            }
+            BUSY.set(null);
+        }
+    }
+
+    /**
+     * Counts the event and returns the histogram to time it into, or {@code null} when this event is not sampled.
+     */
+    private static StripedHistogram sampleLatency(int hookId) {
+        LongAdder[] counters = hookEvents;
+        if (counters == null || hookId >= counters.length) {
+            return null;
+        }
+        counters[hookId].increment();
+        int mask = latencySampleMask;
+        if (mask != 0 && (ThreadLocalRandom.current().nextInt() & mask) != 0) {
+            return null;
+        }
+        StripedHistogram[] latency = hookLatency;
+        return latency != null && hookId < latency.length ? latency[hookId] : null;
+    }
+}
@@ -0,0 +1,25 @@
+package com.secrux.instrumentation.bootstrap;
+
+/**
+ * Receives raw hook events from woven code; implemented by the agent outside the bootstrap class loader.
+ */
+public interface HookSink {
+
+    void onEvent(int hookId, Object self, Object target, Object callerArgument, Object returned);
+
+    /**
+     * An event from a call site rewritten in the calling class; {@code site} is the calling {@code Class.method}.
+     */
+    void onCallSite(int hookId, String site, Object self, Object target, Object callerArgument, Object returned);
+
+    /**
+     * A task handed to an executor by a context-propagating hook; returns the task to pass on, usually wrapped with
+     * {@link TracedTask#wrap}.
+     */
+    Object onSubmit(int hookId, Object self, Object task, Object callerArgument);
+
+    /**
+     * A wrapped task starting on a worker thread; {@code context} is the submitter's symbol id.
+     */
+    void onTaskRun(int hookId, int context, Object task);
+}
@@ -0,0 +1,84 @@
+package com.secrux.instrumentation.bootstrap;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed power-of-two bucket latency histogram striped by thread id, so concurrent recorders rarely share a cache
+ * line. Bucket {@code i} counts values in {@code [2^(i-1), 2^i)}. It lives in the bootstrap package because hook
+ * latency is recorded from advice woven into JDK classes; application metrics reuse it unchanged.
+ */
+public final class StripedHistogram {
+
+    public static final int BUCKETS = 64;
+
+    private static final int SUM = BUCKETS;
+    private static final int STRIDE = BUCKETS + 1;
+    private static final int STRIPES = stripes();
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * STRIDE);
+
+    public void record(long nanos) {
+        int base = ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIDE;
+        cells.getAndIncrement(base + bucket(nanos));
+        cells.getAndAdd(base + SUM, nanos);
+    }
+
+    /**
+     * Bucket counts followed by the sum of all recorded values (length {@code BUCKETS + 1}).
+     */
+    public long[] snapshot() {
+        long[] merged = new long[STRIDE];
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            for (int i = 0; i < STRIDE; i++) {
+                merged[i] += cells.get(stripe * STRIDE + i);
+            }
+        }
+        return merged;
+    }
+
+    public void reset() {
+        for (int i = 0; i < cells.length(); i++) {
+            cells.set(i, 0);
+        }
+    }
+
+    public static long count(long[] snapshot) {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += snapshot[i];
+        }
+        return count;
+    }
+
+    public static long sum(long[] snapshot) {
+        return snapshot[SUM];
+    }
+
+    /**
+     * Upper bound of the bucket holding the given quantile; exact to within a factor of two.
+     */
+    public static long percentile(long[] snapshot, double quantile) {
+        long count = count(snapshot);
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return i == 0 ? 0 : (1L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private static int bucket(long nanos) {
+        return nanos <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+    }
+
+    private static int stripes() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        return Integer.highestOneBit(Math.max(1, Math.min(64, cpus * 2) - 1) << 1);
+    }
+}
@@ -0,0 +1,38 @@
+package com.secrux.instrumentation.bootstrap;
+
+/**
+ * The trace context of the current thread: the symbol id of the method that submitted the task it is running, or
+ * {@link #NONE}. Each thread keeps one mutable slot, so entering and leaving a task allocates nothing.
+ */
+public final class TaskContext {
+
+    public static final int NONE = -1;
+
+    private static final ThreadLocal<int[]> SLOT = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[] {NONE};
+        }
+    };
+
+    private TaskContext() {
+    }
+
+    public static int current() {
+        return SLOT.get()[0];
+    }
+
+    /**
+     * Makes {@code context} current and returns the one it replaces, to be handed back to {@link #restore}.
+     */
+    static int enter(int context) {
+        int[] slot = SLOT.get();
+        int previous = slot[0];
+        slot[0] = context;
+        return previous;
+    }
+
+    static void restore(int previous) {
+        SLOT.get()[0] = previous;
+    }
+}
@@ -0,0 +1,48 @@
+package com.secrux.instrumentation.bootstrap;
+
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * The two-argument counterpart of {@link TracedTask}; separate because {@link BiFunction#andThen} clashes with
+ * {@link java.util.function.Function#andThen}.
+ */
+public final class TracedBiTask implements BiFunction<Object, Object, Object>, BiConsumer<Object, Object> {
+
+    final int hookId;
+    final int context;
+    final Object task;
+
+    TracedBiTask(int hookId, int context, Object task) {
+        this.hookId = hookId;
+        this.context = context;
+        this.task = task;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object apply(Object first, Object second) {
+        int previous = TracedTask.enter(hookId, context, task);
+        try {
+            return ((BiFunction<Object, Object, Object>) task).apply(first, second);
+        } finally {
+            TaskContext.restore(previous);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void accept(Object first, Object second) {
+        int previous = TracedTask.enter(hookId, context, task);
+        try {
+            ((BiConsumer<Object, Object>) task).accept(first, second);
+        } finally {
+            TaskContext.restore(previous);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return task.toString();
+    }
+}
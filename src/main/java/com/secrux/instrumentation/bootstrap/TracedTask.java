@@ -0,0 +1,155 @@
+package com.secrux.instrumentation.bootstrap;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * A submitted task carrying the submitter's context. Running it makes that context current on the worker thread,
+ * reports the submitter-to-task edge and then runs the original task. One wrapper covers every single-argument task
+ * shape an executor or {@code CompletableFuture} accepts; {@link TracedBiTask} covers the two-argument ones.
+ */
+public final class TracedTask implements Runnable, Callable<Object>, Supplier<Object>, Function<Object, Object>,
+        Consumer<Object> {
+
+    final int hookId;
+    final int context;
+    final Object task;
+
+    TracedTask(int hookId, int context, Object task) {
+        this.hookId = hookId;
+        this.context = context;
+        this.task = task;
+    }
+
+    /**
+     * Whether {@link #wrap} would wrap {@code task}: not when it is already wrapped, when it is a {@link Future} (an
+     * executor's own task object, which callers may still cast and compare) or when it does not have exactly one of
+     * the two wrapper shapes. Cheap, so callers check it before paying to resolve a context.
+     */
+    public static boolean wrappable(Object task) {
+        if (task == null || task instanceof TracedTask || task instanceof TracedBiTask || task instanceof Future) {
+            return false;
+        }
+        return isSingle(task) != isPair(task);
+    }
+
+    /**
+     * {@code task} wrapped with {@code context}, or {@code task} itself when it is not {@link #wrappable}.
+     */
+    public static Object wrap(int hookId, int context, Object task) {
+        if (!wrappable(task)) {
+            return task;
+        }
+        return isSingle(task) ? new TracedTask(hookId, context, task) : new TracedBiTask(hookId, context, task);
+    }
+
+    private static boolean isSingle(Object task) {
+        return task instanceof Runnable || task instanceof Callable || task instanceof Supplier
+                || task instanceof Function || task instanceof Consumer;
+    }
+
+    private static boolean isPair(Object task) {
+        return task instanceof BiFunction || task instanceof BiConsumer;
+    }
+
+    /**
+     * The queued wrapper of {@code task}, or {@code task} itself, so that {@code ThreadPoolExecutor.remove} finds what
+     * {@code execute} queued. Matches with {@code task.equals}, like the queue's own {@code remove}.
+     */
+    public static Runnable queued(Collection<Runnable> queue, Runnable task) {
+        if (task == null || task instanceof TracedTask) {
+            return task;
+        }
+        for (Runnable queued : queue) {
+            if (queued instanceof TracedTask && task.equals(((TracedTask) queued).task)) {
+                return queued;
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Replaces each wrapped task in {@code tasks} by the task it wraps, as {@code shutdownNow} callers expect.
+     */
+    public static void unwrap(List<Runnable> tasks) {
+        for (ListIterator<Runnable> iterator = tasks.listIterator(); iterator.hasNext(); ) {
+            Runnable task = iterator.next();
+            if (task instanceof TracedTask && ((TracedTask) task).task instanceof Runnable) {
+                iterator.set((Runnable) ((TracedTask) task).task);
+            }
+        }
+    }
+
+    static int enter(int hookId, int context, Object task) {
+        int previous = TaskContext.enter(context);
+        HookBridge.onTaskRun(hookId, context, task);
+        return previous;
+    }
+
+    @Override
+    public void run() {
+        int previous = enter(hookId, context, task);
+        try {
+            ((Runnable) task).run();
+        } finally {
+            TaskContext.restore(previous);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object call() throws Exception {
+        int previous = enter(hookId, context, task);
+        try {
+            return ((Callable<Object>) task).call();
+        } finally {
+            TaskContext.restore(previous);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object get() {
+        int previous = enter(hookId, context, task);
+        try {
+            return ((Supplier<Object>) task).get();
+        } finally {
+            TaskContext.restore(previous);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object apply(Object value) {
+        int previous = enter(hookId, context, task);
+        try {
+            return ((Function<Object, Object>) task).apply(value);
+        } finally {
+            TaskContext.restore(previous);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void accept(Object value) {
+        int previous = enter(hookId, context, task);
+        try {
+            ((Consumer<Object>) task).accept(value);
+        } finally {
+            TaskContext.restore(previous);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return task.toString();
+    }
+}
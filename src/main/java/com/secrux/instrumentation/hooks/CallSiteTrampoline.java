@@ -0,0 +1,72 @@
+package com.secrux.instrumentation.hooks;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import net.bytebuddy.asm.MemberSubstitution;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+
+import com.secrux.instrumentation.bootstrap.HookBridge;
+
+/**
+ * Static methods that rewritten call sites invoke next to the original call (see
+ * {@link HookEngine#rewriteCallSites}). The hook id, argument positions and the calling method are bound per hook and
+ * call site, so like {@link HookAdvice} they need no argument array, and the caller is a constant instead of a stack
+ * walk. Failures are swallowed, as the advice's {@code suppress} does, so tracing never changes the call's outcome.
+ */
+public final class CallSiteTrampoline {
+
+    private CallSiteTrampoline() {
+    }
+
+    /**
+     * {@code Class.method} of the method containing the rewritten call.
+     */
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.PARAMETER)
+    public @interface CallSite {
+    }
+
+    public static void enter(@HookAdvice.HookId int hookId,
+                             @MemberSubstitution.This(optional = true, typing = Assigner.Typing.DYNAMIC) Object self,
+                             @HookAdvice.HookTarget Object target,
+                             @HookAdvice.HookCaller Object callerArgument,
+                             @CallSite String site) {
+        try {
+            if (HookBridge.isEnabled(hookId)) {
+                HookBridge.onCallSite(hookId, site, self, target, callerArgument, null);
+            }
+        } catch (Throwable ignored) {
+            // Same contract as the woven advice.
+        }
+    }
+
+    public static Object exit(@HookAdvice.HookId int hookId,
+                              @MemberSubstitution.This(optional = true, typing = Assigner.Typing.DYNAMIC) Object self,
+                              @HookAdvice.HookTarget Object target,
+                              @HookAdvice.HookCaller Object callerArgument,
+                              @MemberSubstitution.Current(typing = Assigner.Typing.DYNAMIC) Object returned,
+                              @CallSite String site) {
+        try {
+            if (HookBridge.isEnabled(hookId)) {
+                HookBridge.onCallSite(hookId, site, self, target, callerArgument, returned);
+            }
+        } catch (Throwable ignored) {
+            // Same contract as the woven advice.
+        }
+        return returned;
+    }
+
+    /**
+     * {@link #exit} for calls returning {@code void}, which leave no current value to pass on.
+     */
+    public static void exitVoid(@HookAdvice.HookId int hookId,
+                                @MemberSubstitution.This(optional = true, typing = Assigner.Typing.DYNAMIC) Object self,
+                                @HookAdvice.HookTarget Object target,
+                                @HookAdvice.HookCaller Object callerArgument,
+                                @CallSite String site) {
+        enter(hookId, self, target, callerArgument, site);
+    }
+}
@@ -0,0 +1,101 @@
+package com.secrux.instrumentation.hooks;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.secrux.instrumentation.bootstrap.TaskContext;
+import com.secrux.instrumentation.trace.TraceRecorder;
+
+/**
+ * Resolves the calling frame of a hook event to a symbol id. The walk is lazy and stops at the first frame that is
+ * neither agent code nor one of the hook's skipped prefixes, or after {@link #MAX_DEPTH} frames. Every class seen on
+ * a walk gets a small id so that the prefix checks are cached per hook by id, and the interned
+ * {@code Class.method} symbol is cached per class and method, so a call site already seen costs no string work.
+ * The walk itself runs on every event: advice inside the hooked method cannot tell which site called it, so only
+ * rewritten call sites ({@link #callSite}) resolve without one.
+ */
+final class CallerResolver {
+
+    static final int UNRESOLVED = TaskContext.NONE;
+
+    static final String AGENT_PACKAGE = "com.secrux.instrumentation.";
+    private static final int MAX_DEPTH = 256;
+
+    private final StackFrames frames = StackFrames.create();
+    private final ConcurrentMap<String, FrameClass> classes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> callSites = new ConcurrentHashMap<>();
+    private final AtomicInteger nextClassId = new AtomicInteger();
+    private final TraceRecorder recorder;
+
+    CallerResolver(TraceRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Symbol id of the first frame below the hooked method that is neither agent code nor skipped by {@code hook},
+     * or {@link #UNRESOLVED}.
+     */
+    int resolve(CompiledHook hook) {
+        return frames.walk(cursor -> {
+            int depth = 0;
+            boolean hookedMethod = true;
+            while (depth++ < MAX_DEPTH && cursor.advance()) {
+                FrameClass frame = frameClass(cursor.className());
+                if (hookedMethod) {
+                    if (!frame.agent) {
+                        hookedMethod = false; // The hooked method, which carries the inlined advice.
+                    }
+                    continue;
+                }
+                if (!frame.agent && !hook.skipsCaller(frame.id, frame.name)) {
+                    return frame.caller(cursor.methodName());
+                }
+            }
+            return UNRESOLVED;
+        });
+    }
+
+    /**
+     * Symbol id of a rewritten call site's calling method, interned once per site.
+     */
+    int callSite(String site) {
+        Integer symbol = callSites.get(site);
+        if (symbol == null) {
+            symbol = recorder.intern(site);
+            callSites.putIfAbsent(site, symbol);
+        }
+        return symbol;
+    }
+
+    private FrameClass frameClass(String className) {
+        FrameClass frame = classes.get(className);
+        return frame != null ? frame : classes.computeIfAbsent(className, this::newFrameClass);
+    }
+
+    private FrameClass newFrameClass(String className) {
+        return new FrameClass(nextClassId.getAndIncrement(), className);
+    }
+
+    private final class FrameClass {
+        final int id;
+        final String name;
+        final boolean agent;
+        private final ConcurrentMap<String, Integer> callers = new ConcurrentHashMap<>();
+
+        FrameClass(int id, String name) {
+            this.id = id;
+            this.name = name;
+            this.agent = name.startsWith(AGENT_PACKAGE);
+        }
+
+        int caller(String methodName) {
+            Integer symbol = callers.get(methodName);
+            if (symbol == null) {
+                symbol = recorder.intern(name + "." + methodName);
+                callers.putIfAbsent(methodName, symbol);
+            }
+            return symbol;
+        }
+    }
+}
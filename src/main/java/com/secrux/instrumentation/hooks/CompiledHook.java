@@ -0,0 +1,165 @@
+package com.secrux.instrumentation.hooks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.matcher.ElementMatcher;
+import net.bytebuddy.matcher.ElementMatchers;
+
+/**
+ * A {@link HookDefinition} with its matchers and resolver settings precomputed for the hot path.
+ */
+final class CompiledHook {
+
+    final int id;
+    final HookDefinition definition;
+    final String name;
+    final String edgeType;
+    final boolean exit;
+    final String resolverType;
+    final boolean callerFromArgument;
+    final int targetArgumentIndex;
+    final int callerArgumentIndex;
+    final String[] skipCallerPrefixes;
+    final boolean dedupe;
+    final HookSampler sampler;
+    final boolean propagateContext;
+    final boolean callSite;
+
+    private final NamePattern classPattern;
+    private final NamePattern methodPattern;
+    private final ElementMatcher.Junction<MethodDescription> methodMatcher;
+    // Caller frame class id -> KEEP_CALLER or SKIP_CALLER; 0 until that class is first checked against the prefixes.
+    private volatile byte[] callerSkips = new byte[0];
+
+    private static final byte KEEP_CALLER = 1;
+    private static final byte SKIP_CALLER = 2;
+
+    CompiledHook(int id, HookDefinition definition) {
+        this.id = id;
+        this.definition = definition;
+        this.name = definition.getName();
+        this.edgeType = definition.getEdgeType() != null ? definition.getEdgeType() : "CALL";
+        this.exit = "EXIT".equalsIgnoreCase(definition.getTiming());
+        this.resolverType = definition.getResolverType() != null ? definition.getResolverType() : "HOOKED_METHOD";
+        this.callerFromArgument = "ARGUMENT_METHOD".equals(definition.getCallerResolverType());
+        this.targetArgumentIndex = definition.getTargetArgumentIndex() != null ? definition.getTargetArgumentIndex() : 0;
+        this.callerArgumentIndex = definition.getCallerArgumentIndex() != null
+                ? definition.getCallerArgumentIndex()
+                : targetArgumentIndex;
+        List<String> prefixes = definition.getSkipCallerPrefixes();
+        this.skipCallerPrefixes = prefixes != null ? prefixes.toArray(new String[0]) : new String[0];
+        this.dedupe = definition.isDedupe();
+        Integer cap = definition.getMaxEventsPerSecond();
+        this.sampler = cap != null && cap > 0 ? new HookSampler(cap) : null;
+        // Only enter advice can replace the task before the executor sees it.
+        this.propagateContext = definition.isPropagateContext() && !exit;
+        this.classPattern = NamePattern.compile(definition.getClassPattern());
+        this.methodPattern = NamePattern.compile(definition.getMethodPattern());
+        // Call sites name the invoked method, so only literal targets can be matched there; task wrapping needs advice.
+        this.callSite = definition.isCallSite() && !propagateContext
+                && classPattern.literal() != null && methodPattern.literal() != null;
+        this.methodMatcher = buildMethodMatcher(definition.getDescriptor());
+    }
+
+    boolean matchesClassName(String className) {
+        return classPattern.matches(className);
+    }
+
+    /**
+     * Literal class name, or {@code null} when the class pattern is a real regex.
+     */
+    String literalClassName() {
+        return classPattern.literal();
+    }
+
+    boolean matchesAnyClass() {
+        return classPattern.matchesAll();
+    }
+
+    String literalMethodName() {
+        return methodPattern.literal();
+    }
+
+    /**
+     * Whether caller resolution walks past frames of {@code className}; {@code classId} is its id in the
+     * {@link CallerResolver}. Racing updates may drop an entry, which only means checking the prefixes again.
+     */
+    boolean skipsCaller(int classId, String className) {
+        byte[] known = callerSkips;
+        if (classId < known.length && known[classId] != 0) {
+            return known[classId] == SKIP_CALLER;
+        }
+        boolean skip = false;
+        for (String prefix : skipCallerPrefixes) {
+            if (className.startsWith(prefix)) {
+                skip = true;
+                break;
+            }
+        }
+        byte[] grown = classId < known.length
+                ? known.clone()
+                : Arrays.copyOf(known, Math.max(classId + 1, known.length * 2));
+        grown[classId] = skip ? SKIP_CALLER : KEEP_CALLER;
+        callerSkips = grown;
+        return skip;
+    }
+
+    ElementMatcher.Junction<MethodDescription> methodMatcher() {
+        return methodMatcher;
+    }
+
+    /**
+     * Whether {@code other} produces identical woven bytecode, i.e. it can take over without retransformation.
+     */
+    boolean sameWeaving(CompiledHook other) {
+        return exit == other.exit
+                && propagateContext == other.propagateContext
+                && callSite == other.callSite
+                && targetArgumentIndex == other.targetArgumentIndex
+                && callerArgumentIndex == other.callerArgumentIndex
+                && Objects.equals(definition.getClassPattern(), other.definition.getClassPattern())
+                && Objects.equals(definition.getMethodPattern(), other.definition.getMethodPattern())
+                && Objects.equals(definition.getDescriptor(), other.definition.getDescriptor());
+    }
+
+    /**
+     * Invoked methods this hook rewrites at call sites: the hooked method or an override of it, as resolved from the
+     * call's owner type. Static methods override nothing, so they must be declared by the hooked class itself.
+     */
+    ElementMatcher.Junction<MethodDescription> callSiteMatcher() {
+        ElementMatcher.Junction<TypeDescription> hookedClass = ElementMatchers.named(literalClassName());
+        ElementMatcher.Junction<MethodDescription> matcher = ElementMatchers.<MethodDescription>named(literalMethodName())
+                .and(ElementMatchers.<MethodDescription>isStatic().and(ElementMatchers.isDeclaredBy(hookedClass))
+                        .or(ElementMatchers.isOverriddenFrom(hookedClass)));
+        return withDescriptor(matcher, definition.getDescriptor());
+    }
+
+    boolean matches(TypeDescription type) {
+        return matchesClassName(type.getName()) && !type.getDeclaredMethods().filter(methodMatcher).isEmpty();
+    }
+
+    private ElementMatcher.Junction<MethodDescription> buildMethodMatcher(String descriptor) {
+        ElementMatcher.Junction<MethodDescription> matcher = ElementMatchers.<MethodDescription>isMethod()
+                .and(ElementMatchers.not(ElementMatchers.isAbstract()))
+                .and(new ElementMatcher.Junction.AbstractBase<MethodDescription>() {
+                    @Override
+                    public boolean matches(MethodDescription target) {
+                        return methodPattern.matches(target.getInternalName());
+                    }
+                });
+        return withDescriptor(matcher, descriptor);
+    }
+
+    private static ElementMatcher.Junction<MethodDescription> withDescriptor(
+            ElementMatcher.Junction<MethodDescription> matcher, String descriptor) {
+        if (descriptor == null || descriptor.isEmpty()) {
+            return matcher;
+        }
+        // Descriptors in the config escape '$' as if they were regexes; they are compared verbatim.
+        return matcher.and(ElementMatchers.hasDescriptor(descriptor.replace("\\$", "$")));
+    }
+}
@@ -0,0 +1,108 @@
+package com.secrux.instrumentation.hooks;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+
+import com.secrux.instrumentation.bootstrap.HookBridge;
+import com.secrux.instrumentation.bootstrap.TracedTask;
+
+/**
+ * The advice bodies shared by every configured hook. The hook id and argument positions are bound per hook
+ * through {@link Advice#withCustomMapping()}, so no per-hook advice class and no argument array is created.
+ * Each body first checks the hook's runtime switch, so switching a hook off never requires retransformation.
+ */
+public final class HookAdvice {
+
+    private HookAdvice() {
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.PARAMETER)
+    public @interface HookId {
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.PARAMETER)
+    public @interface HookTarget {
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.PARAMETER)
+    public @interface HookCaller {
+    }
+
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.PARAMETER)
+    public @interface HookTask {
+    }
+
+    public static class Enter {
+        @Advice.OnMethodEnter(suppress = Throwable.class)
+        public static void enter(@HookId int hookId,
+                                 @Advice.This(optional = true) Object self,
+                                 @HookTarget Object target,
+                                 @HookCaller Object callerArgument) {
+            if (HookBridge.isEnabled(hookId)) {
+                HookBridge.onEnter(hookId, self, target, callerArgument);
+            }
+        }
+    }
+
+    /**
+     * Enter advice of context-propagating hooks: the bound target argument is the submitted task, replaced by the
+     * one the bridge returns.
+     */
+    public static class Propagate {
+        @Advice.OnMethodEnter(suppress = Throwable.class)
+        public static void enter(@HookId int hookId,
+                                 @Advice.This(optional = true) Object self,
+                                 @HookTask Object task,
+                                 @HookCaller Object callerArgument) {
+            if (HookBridge.isEnabled(hookId)) {
+                task = HookBridge.onSubmit(hookId, self, task, callerArgument);
+            }
+        }
+    }
+
+    /**
+     * On {@code ThreadPoolExecutor.remove}: swaps the caller's task for the wrapper {@link Propagate} queued for it.
+     */
+    public static class RemoveTask {
+        @Advice.OnMethodEnter(suppress = Throwable.class)
+        public static void enter(@Advice.This ThreadPoolExecutor executor,
+                                 @Advice.Argument(value = 0, readOnly = false) Runnable task) {
+            task = TracedTask.queued(executor.getQueue(), task);
+        }
+    }
+
+    /**
+     * On {@code ThreadPoolExecutor.shutdownNow}: returns the caller's tasks rather than their wrappers.
+     */
+    public static class DrainTasks {
+        @Advice.OnMethodExit(suppress = Throwable.class)
+        public static void exit(@Advice.Return List<Runnable> tasks) {
+            TracedTask.unwrap(tasks);
+        }
+    }
+
+    public static class Exit {
+        @Advice.OnMethodExit(onThrowable = Throwable.class, suppress = Throwable.class)
+        public static void exit(@HookId int hookId,
+                                @Advice.This(optional = true) Object self,
+                                @HookTarget Object target,
+                                @HookCaller Object callerArgument,
+                                @Advice.Return(typing = Assigner.Typing.DYNAMIC) Object returned,
+                                @Advice.Thrown Throwable thrown) {
+            if (thrown == null && HookBridge.isEnabled(hookId)) {
+                HookBridge.onExit(hookId, self, target, callerArgument, returned);
+            }
+        }
+    }
+}
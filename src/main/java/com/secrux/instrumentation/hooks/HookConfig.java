@@ -0,0 +1,54 @@
+package com.secrux.instrumentation.hooks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Root of {@code dynamic-agent-hooks.json}; the position of a hook in {@link #getHooks()} is its numeric hook id.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class HookConfig {
+
+    public static final String DEFAULT_FILE = "dynamic-agent-hooks.json";
+
+    private List<HookDefinition> hooks = new ArrayList<>();
+
+    public List<HookDefinition> getHooks() {
+        return hooks;
+    }
+
+    public void setHooks(List<HookDefinition> hooks) {
+        this.hooks = hooks;
+    }
+
+    public static HookConfig load(Path path) {
+        try {
+            return new ObjectMapper().readValue(path.toFile(), HookConfig.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read hook config " + path, e);
+        }
+    }
+
+    /**
+     * Uses the explicit path when given, otherwise {@value #DEFAULT_FILE} in the working directory if present.
+     * The path {@code none} yields an empty config, leaving only the built-in advice.
+     */
+    public static HookConfig locate(String explicitPath) {
+        if ("none".equals(explicitPath)) {
+            return new HookConfig();
+        }
+        if (explicitPath != null) {
+            return load(Paths.get(explicitPath));
+        }
+        Path fallback = Paths.get(DEFAULT_FILE);
+        return Files.isRegularFile(fallback) ? load(fallback) : new HookConfig();
+    }
+}
@@ -0,0 +1,198 @@
+package com.secrux.instrumentation.hooks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * One entry of {@code dynamic-agent-hooks.json}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class HookDefinition {
+    private String name;
+    private String classPattern;
+    private String methodPattern;
+    private String descriptor;
+    private String timing = "ENTER";
+    private String resolverType;
+    private String callerResolverType;
+    private Integer callerArgumentIndex;
+    private Integer targetArgumentIndex;
+    private String targetMethodName;
+    private String calleeNodeKind;
+    private String callMethodFullName;
+    private String edgeType = "CALL";
+    private String edgeProperty;
+    private List<String> skipCallerPrefixes = new ArrayList<>();
+    private boolean dedupe = true;
+    private Integer maxEventsPerSecond;
+    private boolean propagateContext;
+    private boolean callSite;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getClassPattern() {
+        return classPattern;
+    }
+
+    public void setClassPattern(String classPattern) {
+        this.classPattern = classPattern;
+    }
+
+    public String getMethodPattern() {
+        return methodPattern;
+    }
+
+    public void setMethodPattern(String methodPattern) {
+        this.methodPattern = methodPattern;
+    }
+
+    public String getDescriptor() {
+        return descriptor;
+    }
+
+    public void setDescriptor(String descriptor) {
+        this.descriptor = descriptor;
+    }
+
+    public String getTiming() {
+        return timing;
+    }
+
+    public void setTiming(String timing) {
+        this.timing = timing;
+    }
+
+    public String getResolverType() {
+        return resolverType;
+    }
+
+    public void setResolverType(String resolverType) {
+        this.resolverType = resolverType;
+    }
+
+    public String getCallerResolverType() {
+        return callerResolverType;
+    }
+
+    public void setCallerResolverType(String callerResolverType) {
+        this.callerResolverType = callerResolverType;
+    }
+
+    public Integer getCallerArgumentIndex() {
+        return callerArgumentIndex;
+    }
+
+    public void setCallerArgumentIndex(Integer callerArgumentIndex) {
+        this.callerArgumentIndex = callerArgumentIndex;
+    }
+
+    public Integer getTargetArgumentIndex() {
+        return targetArgumentIndex;
+    }
+
+    public void setTargetArgumentIndex(Integer targetArgumentIndex) {
+        this.targetArgumentIndex = targetArgumentIndex;
+    }
+
+    public String getTargetMethodName() {
+        return targetMethodName;
+    }
+
+    public void setTargetMethodName(String targetMethodName) {
+        this.targetMethodName = targetMethodName;
+    }
+
+    public String getCalleeNodeKind() {
+        return calleeNodeKind;
+    }
+
+    public void setCalleeNodeKind(String calleeNodeKind) {
+        this.calleeNodeKind = calleeNodeKind;
+    }
+
+    public String getCallMethodFullName() {
+        return callMethodFullName;
+    }
+
+    public void setCallMethodFullName(String callMethodFullName) {
+        this.callMethodFullName = callMethodFullName;
+    }
+
+    public String getEdgeType() {
+        return edgeType;
+    }
+
+    public void setEdgeType(String edgeType) {
+        this.edgeType = edgeType;
+    }
+
+    public String getEdgeProperty() {
+        return edgeProperty;
+    }
+
+    public void setEdgeProperty(String edgeProperty) {
+        this.edgeProperty = edgeProperty;
+    }
+
+    public List<String> getSkipCallerPrefixes() {
+        return skipCallerPrefixes;
+    }
+
+    public void setSkipCallerPrefixes(List<String> skipCallerPrefixes) {
+        this.skipCallerPrefixes = skipCallerPrefixes;
+    }
+
+    /**
+     * Record each distinct caller/callee edge once and only count repeats.
+     */
+    public boolean isDedupe() {
+        return dedupe;
+    }
+
+    public void setDedupe(boolean dedupe) {
+        this.dedupe = dedupe;
+    }
+
+    /**
+     * Optional adaptive sampling cap; {@code null} records every event.
+     */
+    public Integer getMaxEventsPerSecond() {
+        return maxEventsPerSecond;
+    }
+
+    public void setMaxEventsPerSecond(Integer maxEventsPerSecond) {
+        this.maxEventsPerSecond = maxEventsPerSecond;
+    }
+
+    /**
+     * Wrap the submitted task (the target argument) so the edge is recorded from the submitter to the task when it
+     * runs, and the submitter stays the context of hook events inside it whose stack shows no caller.
+     */
+    public boolean isPropagateContext() {
+        return propagateContext;
+    }
+
+    public void setPropagateContext(boolean propagateContext) {
+        this.propagateContext = propagateContext;
+    }
+
+    /**
+     * With the agent's {@code callSites} option, rewrite calls to the hooked method inside the listed packages
+     * instead of weaving the method itself; needs a literal class and method name.
+     */
+    public boolean isCallSite() {
+        return callSite;
+    }
+
+    public void setCallSite(boolean callSite) {
+        this.callSite = callSite;
+    }
+}
@@ -0,0 +1,119 @@
+package com.secrux.instrumentation.hooks;
+
+import java.lang.reflect.Member;
+
+import com.secrux.instrumentation.bootstrap.HookSink;
+import com.secrux.instrumentation.bootstrap.TaskContext;
+import com.secrux.instrumentation.bootstrap.TracedTask;
+import com.secrux.instrumentation.trace.TraceRecorder;
+
+/**
+ * Turns raw hook events into caller/callee edges according to each hook's resolver settings.
+ */
+final class HookDispatcher implements HookSink {
+
+    private final CompiledHook[] hooks;
+    private final TraceRecorder recorder;
+    private final CallerResolver callers;
+
+    HookDispatcher(CompiledHook[] hooks, TraceRecorder recorder, CallerResolver callers) {
+        this.hooks = hooks;
+        this.recorder = recorder;
+        this.callers = callers;
+    }
+
+    @Override
+    public void onEvent(int hookId, Object self, Object target, Object callerArgument, Object returned) {
+        dispatch(hooks[hookId], null, self, target, callerArgument, returned);
+    }
+
+    /**
+     * The calling method is a constant of the rewritten call site, so no frames are walked.
+     */
+    @Override
+    public void onCallSite(int hookId, String site, Object self, Object target, Object callerArgument,
+                           Object returned) {
+        dispatch(hooks[hookId], site, self, target, callerArgument, returned);
+    }
+
+    private void dispatch(CompiledHook hook, String site, Object self, Object target, Object callerArgument,
+                          Object returned) {
+        if (hook.sampler != null && !hook.sampler.admit()) {
+            return; // Sampled out before paying for caller resolution.
+        }
+        String callee = resolveCallee(hook, self, target, returned);
+        if (callee == null) {
+            return;
+        }
+        int caller = site != null && !hook.callerFromArgument
+                ? callers.callSite(site)
+                : resolveCaller(hook, callerArgument);
+        if (caller == CallerResolver.UNRESOLVED) {
+            return;
+        }
+        int calleeId = recorder.intern(callee);
+        if (caller == calleeId && self != null && hook.literalMethodName() != null) {
+            // Proxy handlers see the interface method on both sides; the handler body is the real callee.
+            calleeId = recorder.intern(MemberNames.objectMethod(self, hook.literalMethodName()));
+        }
+        recorder.record(hook.id, caller, calleeId, hook.dedupe);
+    }
+
+    /**
+     * Wraps the task with its submitter instead of recording now; the edge is recorded by {@link #onTaskRun} on the
+     * worker, which also moves interning the callee off the submitting thread. Tasks that would not be wrapped, such
+     * as the {@code FutureTask} that {@code submit} hands on to {@code execute}, return before sampling or the walk.
+     */
+    @Override
+    public Object onSubmit(int hookId, Object self, Object task, Object callerArgument) {
+        CompiledHook hook = hooks[hookId];
+        if (!TracedTask.wrappable(task) || (hook.sampler != null && !hook.sampler.admit())) {
+            return task;
+        }
+        int caller = resolveCaller(hook, callerArgument);
+        return caller != CallerResolver.UNRESOLVED ? TracedTask.wrap(hookId, caller, task) : task;
+    }
+
+    @Override
+    public void onTaskRun(int hookId, int context, Object task) {
+        CompiledHook hook = hooks[hookId];
+        String callee = resolveCallee(hook, null, task, null);
+        if (callee != null) {
+            recorder.record(hook.id, context, recorder.intern(callee), hook.dedupe);
+        }
+    }
+
+    /**
+     * Falls back to the submitter of the task running on this thread when no frame qualifies as the caller.
+     */
+    private int resolveCaller(CompiledHook hook, Object callerArgument) {
+        if (!hook.callerFromArgument) {
+            int caller = callers.resolve(hook);
+            return caller != CallerResolver.UNRESOLVED ? caller : TaskContext.current();
+        }
+        String caller = MemberNames.describe(callerArgument);
+        return caller != null ? recorder.intern(caller) : CallerResolver.UNRESOLVED;
+    }
+
+    private static String resolveCallee(CompiledHook hook, Object self, Object target, Object returned) {
+        String targetMethod = hook.definition.getTargetMethodName();
+        switch (hook.resolverType) {
+            case "HOOKED_METHOD":
+                return self instanceof Class ? MemberNames.constructorOf((Class<?>) self) : null;
+            case "THIS_OBJECT_METHOD":
+                return MemberNames.objectMethod(self, targetMethod);
+            case "ARGUMENT_OBJECT_METHOD":
+                return MemberNames.objectMethod(target, targetMethod);
+            case "THIS_REFLECTIVE_MEMBER":
+                return self instanceof Member ? MemberNames.describe(self) : null;
+            default:
+                if (hook.resolverType.startsWith("THIS_")) {
+                    return MemberNames.describe(self);
+                }
+                if (hook.resolverType.startsWith("RETURNED_")) {
+                    return MemberNames.describe(returned);
+                }
+                return MemberNames.describe(target);
+        }
+    }
+}
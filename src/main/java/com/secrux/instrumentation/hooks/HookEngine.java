@@ -0,0 +1,378 @@
+package com.secrux.instrumentation.hooks;
+
+import java.lang.reflect.Method;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.asm.AsmVisitorWrapper;
+import net.bytebuddy.asm.MemberSubstitution;
+import net.bytebuddy.asm.MemberSubstitution.Substitution.Chain;
+import net.bytebuddy.description.method.MethodDescription;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+import net.bytebuddy.implementation.bytecode.constant.TextConstant;
+import net.bytebuddy.matcher.ElementMatcher;
+import net.bytebuddy.matcher.ElementMatchers;
+import net.bytebuddy.utility.JavaModule;
+
+import com.secrux.instrumentation.AgentOptions;
+import com.secrux.instrumentation.AgentStartupReport;
+import com.secrux.instrumentation.bootstrap.HookBridge;
+import com.secrux.instrumentation.trace.TraceRecorder;
+
+/**
+ * Installs every hook of a {@link HookConfig} through a single type matcher and transformer.
+ * Hooks with a literal class name are indexed by name; only regex hooks are scanned per type.
+ */
+public final class HookEngine {
+
+    // The calling method, as a constant of each rewritten call site.
+    private static final Chain.Step.ForDelegation.OffsetMapping CALL_SITE =
+            (assigner, typing, instrumentedType, instrumentedMethod) ->
+                    new Chain.Step.ForDelegation.OffsetMapping.Resolved.ForStackManipulation(new TextConstant(
+                            instrumentedType.getName() + "." + instrumentedMethod.getInternalName()));
+
+    // Owner of the queue that context-propagating hooks fill with wrapped tasks.
+    private static final String TASK_EXECUTOR = "java.util.concurrent.ThreadPoolExecutor";
+
+    // The woven set is fixed at install; reloads only swap resolver settings for hooks with identical weaving.
+    private final CompiledHook[] hooks;
+    private final AsmVisitorWrapper[] advice;
+    private CompiledHook[] active;
+    private TraceRecorder recorder;
+    private CallerResolver callers;
+    private final Map<String, List<CompiledHook>> byClassName = new HashMap<>();
+    private final List<CompiledHook> patternHooks = new ArrayList<>();
+    // Set by rewriteCallSites: packages whose calls to call-site hooks are rewritten, and the rewrite of all of them.
+    private String[] callSitePrefixes = new String[0];
+    private AsmVisitorWrapper callSites;
+    // Unwraps tasks on their way back to the application; null when no hook propagates context.
+    private final AsmVisitorWrapper taskUnwrapping;
+
+    public HookEngine(HookConfig config) {
+        List<HookDefinition> definitions = config.getHooks();
+        this.hooks = new CompiledHook[definitions.size()];
+        this.advice = new AsmVisitorWrapper[definitions.size()];
+        for (int id = 0; id < hooks.length; id++) {
+            CompiledHook hook = new CompiledHook(id, definitions.get(id));
+            hooks[id] = hook;
+            advice[id] = adviceFor(hook);
+            String literal = hook.literalClassName();
+            if (literal != null) {
+                byClassName.computeIfAbsent(literal, key -> new ArrayList<>()).add(hook);
+            } else {
+                patternHooks.add(hook);
+            }
+        }
+        this.active = hooks.clone();
+        this.taskUnwrapping = Arrays.stream(hooks).anyMatch(hook -> hook.propagateContext)
+                ? new AsmVisitorWrapper.Compound(
+                        Advice.to(HookAdvice.RemoveTask.class).on(ElementMatchers.named("remove")
+                                .and(ElementMatchers.takesArguments(Runnable.class))),
+                        Advice.to(HookAdvice.DrainTasks.class).on(ElementMatchers.named("shutdownNow")
+                                .and(ElementMatchers.takesNoArguments())))
+                : null;
+    }
+
+    public int size() {
+        return hooks.length;
+    }
+
+    /**
+     * Starts counting every dispatched event per hook and timing one in {@code sampleEvery}; read back through
+     * {@link HookBridge#hookEvents()} and {@link HookBridge#hookLatency()}.
+     */
+    public void enableMetrics(int sampleEvery) {
+        String[] names = new String[hooks.length];
+        for (CompiledHook hook : hooks) {
+            names[hook.id] = hook.name;
+        }
+        HookBridge.enableMetrics(names, sampleEvery);
+    }
+
+    /**
+     * Cheap name-only pre-check: whether any hook could apply to {@code typeName}. Regex hooks are not consulted for
+     * names under {@code excludedPrefixes}, which keeps catch-all patterns such as {@code .*} off JDK and framework
+     * classes; literal targets are always honoured.
+     */
+    public boolean couldAffect(String typeName, String[] excludedPrefixes) {
+        if (byClassName.containsKey(typeName) || rewritesCallSites(typeName) || unwrapsTasks(typeName)) {
+            return true;
+        }
+        if (patternHooks.isEmpty()) {
+            return false;
+        }
+        for (String prefix : excludedPrefixes) {
+            if (typeName.startsWith(prefix)) {
+                return false;
+            }
+        }
+        for (CompiledHook hook : patternHooks) {
+            if (hook.matchesClassName(typeName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Switches every hook marked {@code callSite} from weaving its (JDK) method to rewriting the calls to it made from
+     * classes under {@code prefixes}: each call is followed, or for enter hooks preceded, by a call to
+     * {@link CallSiteTrampoline}, and the hooked class itself is left alone so callers elsewhere run it untouched.
+     * All hooks share one substitution, so each class is scanned once; a call matched by several hooks reports only
+     * to the first. Must be called before {@link #extend}.
+     */
+    public void rewriteCallSites(String[] prefixes) {
+        MemberSubstitution substitution = MemberSubstitution.relaxed();
+        int rewritten = 0;
+        for (CompiledHook hook : hooks) {
+            if (!hook.callSite) {
+                continue;
+            }
+            List<CompiledHook> woven = byClassName.get(hook.literalClassName());
+            woven.remove(hook);
+            if (woven.isEmpty()) {
+                byClassName.remove(hook.literalClassName());
+            }
+            substitution = callSiteFor(substitution, hook);
+            rewritten++;
+        }
+        this.callSitePrefixes = prefixes.clone();
+        this.callSites = rewritten == 0 ? null : substitution.on(ElementMatchers.any());
+        System.out.println("[Agent] " + rewritten + " hooks rewrite call sites in "
+                + String.join(";", prefixes));
+    }
+
+    /**
+     * Adds the hook transformation to {@code builder} and routes events to {@code recorder}; the bridge must already
+     * be visible to the bootstrap loader.
+     */
+    public AgentBuilder extend(AgentBuilder builder, TraceRecorder recorder, AgentStartupReport report) {
+        this.recorder = recorder;
+        this.callers = new CallerResolver(recorder);
+        for (CompiledHook hook : hooks) {
+            recorder.registerHook(hook.id, hook.name, hook.edgeType, hook.definition.getEdgeProperty());
+        }
+        HookBridge.install(new HookDispatcher(hooks, recorder, callers));
+        return builder
+                .type(report.timed(new ElementMatcher.Junction.AbstractBase<TypeDescription>() {
+                    @Override
+                    public boolean matches(TypeDescription target) {
+                        return !candidates(target).isEmpty() || rewritesCallSites(target.getName())
+                                || unwrapsTasks(target.getName());
+                    }
+                }))
+                .transform(this::transform);
+    }
+
+    private DynamicType.Builder<?> transform(DynamicType.Builder<?> builder, TypeDescription type,
+                                             ClassLoader classLoader, JavaModule module,
+                                             ProtectionDomain protectionDomain) {
+        for (CompiledHook hook : candidates(type)) {
+            builder = builder.visit(advice[hook.id]);
+        }
+        if (rewritesCallSites(type.getName())) {
+            builder = builder.visit(callSites);
+        }
+        if (unwrapsTasks(type.getName())) {
+            builder = builder.visit(taskUnwrapping);
+        }
+        return builder;
+    }
+
+    /**
+     * Flips per-hook switches from agent options: {@code tracing=on|off} sets every hook, then
+     * {@code enable=a;b} and {@code disable=c;d} adjust individual hooks by name. Unknown names are reported.
+     */
+    public synchronized void applySwitches(AgentOptions options) {
+        boolean[] switches = HookBridge.switches();
+        if (switches.length != hooks.length) {
+            switches = new boolean[hooks.length];
+            Arrays.fill(switches, true);
+        }
+        String tracing = options.get("tracing");
+        if (tracing != null) {
+            Arrays.fill(switches, "on".equalsIgnoreCase(tracing));
+        }
+        setByName(switches, options.get("enable"), true);
+        setByName(switches, options.get("disable"), false);
+        HookBridge.setSwitches(switches);
+        int on = 0;
+        for (boolean enabled : switches) {
+            on += enabled ? 1 : 0;
+        }
+        System.out.println("[Agent] " + on + "/" + switches.length + " hooks enabled");
+    }
+
+    /**
+     * Re-reads resolver settings without retransforming. Hooks whose weaving (class, method, descriptor, timing or
+     * bound argument positions) changed keep their old settings, hooks missing from the new file are switched off,
+     * and new hooks are reported as needing a restart.
+     */
+    public synchronized void reload(HookConfig config) {
+        Map<String, HookDefinition> byName = new HashMap<>();
+        for (HookDefinition definition : config.getHooks()) {
+            byName.put(definition.getName(), definition);
+        }
+        CompiledHook[] next = active.clone();
+        boolean[] switches = HookBridge.switches();
+        for (int id = 0; id < hooks.length; id++) {
+            HookDefinition definition = byName.remove(hooks[id].name);
+            if (definition == null) {
+                if (id < switches.length) {
+                    switches[id] = false;
+                }
+                continue;
+            }
+            CompiledHook candidate = new CompiledHook(id, definition);
+            if (!candidate.sameWeaving(hooks[id])) {
+                System.err.println("[Agent] hook " + candidate.name + " changed its weaving; restart to apply");
+                continue;
+            }
+            next[id] = candidate;
+            recorder.registerHook(id, candidate.name, candidate.edgeType, definition.getEdgeProperty());
+        }
+        for (String added : byName.keySet()) {
+            System.err.println("[Agent] hook " + added + " is not woven; restart to apply");
+        }
+        active = next;
+        HookBridge.install(new HookDispatcher(next, recorder, callers));
+        HookBridge.setSwitches(switches);
+    }
+
+    private void setByName(boolean[] switches, String names, boolean enabled) {
+        if (names == null) {
+            return;
+        }
+        for (String name : names.split(";")) {
+            int id = idOf(name.trim());
+            if (id < 0) {
+                System.err.println("[Agent] unknown hook " + name);
+            } else {
+                switches[id] = enabled;
+            }
+        }
+    }
+
+    private int idOf(String name) {
+        for (CompiledHook hook : hooks) {
+            if (hook.name.equals(name)) {
+                return hook.id;
+            }
+        }
+        return -1;
+    }
+
+    private boolean rewritesCallSites(String typeName) {
+        if (callSites == null || typeName.startsWith(CallerResolver.AGENT_PACKAGE)) {
+            return false;
+        }
+        for (String prefix : callSitePrefixes) {
+            if (typeName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wrapping a task changes what {@code ThreadPoolExecutor} hands back, so its {@code remove} and
+     * {@code shutdownNow} translate between the caller's tasks and the queued wrappers.
+     */
+    private boolean unwrapsTasks(String typeName) {
+        return taskUnwrapping != null && typeName.equals(TASK_EXECUTOR);
+    }
+
+    List<CompiledHook> candidates(TypeDescription type) {
+        List<CompiledHook> exact = byClassName.getOrDefault(type.getName(), Collections.emptyList());
+        if (patternHooks.isEmpty() && exact.isEmpty()) {
+            return exact;
+        }
+        List<CompiledHook> matched = new ArrayList<>(exact.size());
+        for (CompiledHook hook : exact) {
+            if (hook.matches(type)) {
+                matched.add(hook);
+            }
+        }
+        for (CompiledHook hook : patternHooks) {
+            if (hook.matches(type)) {
+                matched.add(hook);
+            }
+        }
+        return matched;
+    }
+
+    private static AsmVisitorWrapper adviceFor(CompiledHook hook) {
+        return Advice.withCustomMapping()
+                .bind(HookAdvice.HookId.class, hook.id)
+                .bind(HookAdvice.HookTarget.class, argument(hook.targetArgumentIndex, true))
+                .bind(HookAdvice.HookTask.class, argument(hook.targetArgumentIndex, false))
+                .bind(HookAdvice.HookCaller.class, argument(hook.callerArgumentIndex, true))
+                .to(adviceClass(hook))
+                .on(hook.methodMatcher());
+    }
+
+    private static Class<?> adviceClass(CompiledHook hook) {
+        if (hook.propagateContext) {
+            return HookAdvice.Propagate.class;
+        }
+        return hook.exit ? HookAdvice.Exit.class : HookAdvice.Enter.class;
+    }
+
+    /**
+     * Enter hooks call the trampoline before the original call, exit hooks after it with its result; a call that
+     * throws skips the exit trampoline just as it skips exit advice.
+     */
+    private static MemberSubstitution callSiteFor(MemberSubstitution substitution, CompiledHook hook) {
+        Chain.Step.ForDelegation.WithCustomMapping mapping = Chain.Step.ForDelegation.withCustomMapping()
+                .bind(HookAdvice.HookId.class, hook.id)
+                .bind(HookAdvice.HookTarget.class, callSiteArgument(hook.targetArgumentIndex))
+                .bind(HookAdvice.HookCaller.class, callSiteArgument(hook.callerArgumentIndex))
+                .bind(CallSiteTrampoline.CallSite.class, CALL_SITE);
+        ElementMatcher.Junction<MethodDescription> invoked = hook.callSiteMatcher();
+        if (!hook.exit) {
+            return substitution.method(invoked)
+                    .replaceWith(chain(mapping.to(trampoline("enter")), Chain.Step.OfOriginalExpression.INSTANCE));
+        }
+        return substitution
+                .method(invoked.and(ElementMatchers.returns(void.class)))
+                .replaceWith(chain(Chain.Step.OfOriginalExpression.INSTANCE, mapping.to(trampoline("exitVoid"))))
+                .method(invoked.and(ElementMatchers.not(ElementMatchers.returns(void.class))))
+                .replaceWith(chain(Chain.Step.OfOriginalExpression.INSTANCE, mapping.to(trampoline("exit"))));
+    }
+
+    private static Chain.Factory chain(Chain.Step.Factory... steps) {
+        return Chain.with(Assigner.DEFAULT, Assigner.Typing.DYNAMIC).executing(steps);
+    }
+
+    private static Method trampoline(String name) {
+        for (Method method : CallSiteTrampoline.class.getMethods()) {
+            if (method.getName().equals(name)) {
+                return method;
+            }
+        }
+        throw new IllegalStateException("No trampoline " + name);
+    }
+
+    private static Chain.Step.ForDelegation.OffsetMapping callSiteArgument(int index) {
+        // Optional like the advice arguments: calls with fewer parameters pass null.
+        return new Chain.Step.ForDelegation.OffsetMapping.ForArgument(
+                TypeDescription.Generic.OfNonGenericType.ForLoadedType.of(Object.class), index,
+                Assigner.Typing.DYNAMIC, MemberSubstitution.Source.SUBSTITUTED_ELEMENT, true);
+    }
+
+    private static Advice.OffsetMapping argument(int index, boolean readOnly) {
+        // Optional so that overloads with fewer parameters than the configured index still weave (as null).
+        return new Advice.OffsetMapping.ForArgument.Unresolved(
+                TypeDescription.Generic.OfNonGenericType.ForLoadedType.of(Object.class), readOnly,
+                Assigner.Typing.DYNAMIC, index, true);
+    }
+}
@@ -0,0 +1,44 @@
+package com.secrux.instrumentation.hooks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps the event rate of one hook. Within each one-second window the first {@code maxEventsPerSecond} events pass;
+ * beyond that only every 2^k-th event is admitted, where k adapts to how far the previous window overshot.
+ */
+final class HookSampler {
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final int maxEventsPerSecond;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger seen = new AtomicInteger();
+    private volatile int shift;
+
+    HookSampler(int maxEventsPerSecond) {
+        this.maxEventsPerSecond = maxEventsPerSecond;
+    }
+
+    boolean admit() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            int previous = seen.getAndSet(0);
+            shift = overshootShift(previous);
+        }
+        int n = seen.incrementAndGet();
+        if (n <= maxEventsPerSecond) {
+            return true;
+        }
+        int mask = (1 << shift) - 1;
+        return (n & mask) == 0;
+    }
+
+    private int overshootShift(int previousWindowEvents) {
+        int ratio = previousWindowEvents / Math.max(1, maxEventsPerSecond);
+        // ceil(log2(ratio)), at least one halving once the cap is exceeded, bounded to keep the mask sane.
+        return ratio <= 1 ? 1 : Math.min(30, 32 - Integer.numberOfLeadingZeros(ratio - 1));
+    }
+}
@@ -0,0 +1,90 @@
+package com.secrux.instrumentation.hooks;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders reflective objects as Joern-style full names ({@code pkg.Type.method:ret(params)}).
+ */
+final class MemberNames {
+
+    private static final ClassValue<Map<String, String>> OBJECT_METHODS = new ClassValue<Map<String, String>>() {
+        @Override
+        protected Map<String, String> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private MemberNames() {
+    }
+
+    static String describe(Object value) {
+        if (value instanceof Method) {
+            return method((Method) value);
+        }
+        if (value instanceof Constructor) {
+            return constructor((Constructor<?>) value);
+        }
+        if (value instanceof Field) {
+            Field field = (Field) value;
+            return field.getDeclaringClass().getName() + "." + field.getName();
+        }
+        if (value instanceof Class) {
+            return ((Class<?>) value).getName();
+        }
+        if (value instanceof MethodHandles.Lookup) {
+            return ((MethodHandles.Lookup) value).lookupClass().getName();
+        }
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * Full name of the method {@code methodName} that {@code receiver} would run, e.g. the {@code run} of a task.
+     */
+    static String objectMethod(Object receiver, String methodName) {
+        if (receiver == null) {
+            return null;
+        }
+        Class<?> type = receiver.getClass();
+        return OBJECT_METHODS.get(type).computeIfAbsent(methodName, name -> {
+            for (Method candidate : type.getMethods()) {
+                if (candidate.getName().equals(name) && !candidate.isBridge()) {
+                    return method(type, candidate);
+                }
+            }
+            return type.getName() + "." + name;
+        });
+    }
+
+    static String constructorOf(Class<?> type) {
+        return type.getName() + ".<init>:void()";
+    }
+
+    private static String method(Method method) {
+        return method(method.getDeclaringClass(), method);
+    }
+
+    private static String method(Class<?> owner, Method method) {
+        return owner.getName() + "." + method.getName() + ":" + method.getReturnType().getTypeName()
+                + parameters(method.getParameterTypes());
+    }
+
+    private static String constructor(Constructor<?> constructor) {
+        return constructor.getDeclaringClass().getName() + ".<init>:void" + parameters(constructor.getParameterTypes());
+    }
+
+    private static String parameters(Class<?>[] types) {
+        StringBuilder out = new StringBuilder("(");
+        for (int i = 0; i < types.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(types[i].getTypeName());
+        }
+        return out.append(')').toString();
+    }
+}
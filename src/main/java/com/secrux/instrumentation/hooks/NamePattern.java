@@ -0,0 +1,64 @@
+package com.secrux.instrumentation.hooks;
+
+import java.util.regex.Pattern;
+
+/**
+ * Name matcher compiled once per hook. Patterns that only escape metacharacters (the common
+ * {@code java\.lang\.reflect\.Method} shape) degrade to a plain string comparison.
+ */
+final class NamePattern {
+
+    private static final String METACHARACTERS = ".*+?[](){}|^$";
+
+    private final String literal;
+    private final Pattern regex;
+
+    private NamePattern(String literal, Pattern regex) {
+        this.literal = literal;
+        this.regex = regex;
+    }
+
+    static NamePattern compile(String pattern) {
+        if (pattern == null || pattern.equals(".*")) {
+            return new NamePattern(null, null);
+        }
+        String literal = unescape(pattern);
+        return literal != null ? new NamePattern(literal, null) : new NamePattern(null, Pattern.compile(pattern));
+    }
+
+    boolean matchesAll() {
+        return literal == null && regex == null;
+    }
+
+    /**
+     * Exact name when the pattern is literal, otherwise {@code null}.
+     */
+    String literal() {
+        return literal;
+    }
+
+    boolean matches(String name) {
+        if (literal != null) {
+            return literal.equals(name);
+        }
+        return regex == null || regex.matcher(name).matches();
+    }
+
+    private static String unescape(String pattern) {
+        StringBuilder out = new StringBuilder(pattern.length());
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= pattern.length() || Character.isLetterOrDigit(pattern.charAt(i + 1))) {
+                    return null; // \d, \w and friends are real regex constructs.
+                }
+                out.append(pattern.charAt(++i));
+            } else if (METACHARACTERS.indexOf(c) >= 0) {
+                return null;
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
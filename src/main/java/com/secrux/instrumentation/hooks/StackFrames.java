@@ -0,0 +1,197 @@
+package com.secrux.instrumentation.hooks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Lazy walk over the current thread's frames, innermost first, starting at the frame that called {@link #walk}.
+ * Frames are only materialized as far as the walk advances: on Java 9+ through {@code StackWalker} (showing
+ * reflection frames, like {@link Thread#getStackTrace()} does), on Java 8 through {@code JavaLangAccess}'s per-index
+ * access to a throwable's backtrace, and only where neither exists by capturing the whole stack. The Java 9+ and
+ * Java 8 types are reached through method handles so the agent keeps compiling and linking on either.
+ */
+abstract class StackFrames {
+
+    /**
+     * One pass over the frames; valid only inside {@link Walk#walk}.
+     */
+    interface Cursor {
+        boolean advance();
+
+        String className();
+
+        String methodName();
+    }
+
+    interface Walk {
+        int walk(Cursor frames);
+    }
+
+    static StackFrames create() {
+        try {
+            return new Walking();
+        } catch (ReflectiveOperationException | RuntimeException notJava9) {
+            try {
+                return new Backtrace();
+            } catch (ReflectiveOperationException | RuntimeException notJava8) {
+                return new Captured();
+            }
+        }
+    }
+
+    abstract int walk(Walk walk);
+
+    /**
+     * {@code StackWalker.getInstance(SHOW_REFLECT_FRAMES).walk(...)}, pulling frames from the stream one at a time.
+     */
+    private static final class Walking extends StackFrames {
+        private final Object walker;
+        private final MethodHandle walkMethod;
+        private final MethodHandle className;
+        private final MethodHandle methodName;
+
+        Walking() throws ReflectiveOperationException {
+            Class<?> walkerType = Class.forName("java.lang.StackWalker");
+            Class<?> optionType = Class.forName("java.lang.StackWalker$Option");
+            Class<?> frameType = Class.forName("java.lang.StackWalker$StackFrame");
+            Object showReflectFrames = optionType.getMethod("valueOf", String.class).invoke(null, "SHOW_REFLECT_FRAMES");
+            walker = walkerType.getMethod("getInstance", optionType).invoke(null, showReflectFrames);
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            walkMethod = lookup.findVirtual(walkerType, "walk", MethodType.methodType(Object.class, Function.class))
+                    .asType(MethodType.methodType(Object.class, Object.class, Function.class));
+            className = lookup.findVirtual(frameType, "getClassName", MethodType.methodType(String.class))
+                    .asType(MethodType.methodType(String.class, Object.class));
+            methodName = lookup.findVirtual(frameType, "getMethodName", MethodType.methodType(String.class))
+                    .asType(MethodType.methodType(String.class, Object.class));
+        }
+
+        @Override
+        int walk(Walk walk) {
+            Function<Stream<?>, Object> visit = stream -> walk.walk(new Cursor() {
+                private final Iterator<?> frames = stream.iterator();
+                private Object frame;
+
+                @Override
+                public boolean advance() {
+                    frame = frames.hasNext() ? frames.next() : null;
+                    return frame != null;
+                }
+
+                @Override
+                public String className() {
+                    return invoke(className, frame);
+                }
+
+                @Override
+                public String methodName() {
+                    return invoke(methodName, frame);
+                }
+            });
+            try {
+                return (Integer) (Object) walkMethod.invokeExact(walker, (Function) visit);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+
+        private static String invoke(MethodHandle accessor, Object frame) {
+            try {
+                return (String) accessor.invokeExact(frame);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+
+    /**
+     * Java 8: {@code SharedSecrets.getJavaLangAccess()} reads single elements of a throwable's backtrace, so only the
+     * frames walked are turned into {@link StackTraceElement}s.
+     */
+    private static final class Backtrace extends StackFrames {
+        private final Object access;
+        private final MethodHandle depth;
+        private final MethodHandle element;
+
+        Backtrace() throws ReflectiveOperationException {
+            Class<?> accessType = Class.forName("sun.misc.JavaLangAccess");
+            access = Class.forName("sun.misc.SharedSecrets").getMethod("getJavaLangAccess").invoke(null);
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            depth = lookup.findVirtual(accessType, "getStackTraceDepth", MethodType.methodType(int.class, Throwable.class))
+                    .asType(MethodType.methodType(int.class, Object.class, Throwable.class));
+            element = lookup.findVirtual(accessType, "getStackTraceElement",
+                            MethodType.methodType(StackTraceElement.class, Throwable.class, int.class))
+                    .asType(MethodType.methodType(StackTraceElement.class, Object.class, Throwable.class, int.class));
+        }
+
+        @Override
+        int walk(Walk walk) {
+            Throwable backtrace = new Throwable();
+            try {
+                int frames = (int) depth.invokeExact(access, backtrace);
+                return walk.walk(new ElementCursor() {
+                    @Override
+                    StackTraceElement element(int index) {
+                        if (index >= frames) {
+                            return null;
+                        }
+                        try {
+                            return (StackTraceElement) element.invokeExact(access, backtrace, index);
+                        } catch (RuntimeException | Error e) {
+                            throw e;
+                        } catch (Throwable t) {
+                            throw new IllegalStateException(t);
+                        }
+                    }
+                });
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
+    }
+
+    private static final class Captured extends StackFrames {
+        @Override
+        int walk(Walk walk) {
+            StackTraceElement[] frames = new Throwable().getStackTrace();
+            return walk.walk(new ElementCursor() {
+                @Override
+                StackTraceElement element(int index) {
+                    return index < frames.length ? frames[index] : null;
+                }
+            });
+        }
+    }
+
+    private abstract static class ElementCursor implements Cursor {
+        private int index = -1;
+        private StackTraceElement frame;
+
+        abstract StackTraceElement element(int index);
+
+        @Override
+        public boolean advance() {
+            frame = element(++index);
+            return frame != null;
+        }
+
+        @Override
+        public String className() {
+            return frame.getClassName();
+        }
+
+        @Override
+        public String methodName() {
+            return frame.getMethodName();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.secrux.instrumentation.trace;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Where a {@link TraceCollector} listens: {@code <port>} or {@code <host>:<port>} for TCP, {@code unix:<path>} for a
+ * Unix domain socket. Unix sockets need Java 16 and are reached reflectively so the agent still runs on Java 8.
+ */
+final class CollectorAddress {
+
+    private static final String UNIX_PREFIX = "unix:";
+
+    private final String spec;
+    private final String unixPath;
+    private final InetSocketAddress inet;
+
+    private CollectorAddress(String spec, String unixPath, InetSocketAddress inet) {
+        this.spec = spec;
+        this.unixPath = unixPath;
+        this.inet = inet;
+    }
+
+    static CollectorAddress parse(String spec) {
+        if (spec.startsWith(UNIX_PREFIX)) {
+            return new CollectorAddress(spec, spec.substring(UNIX_PREFIX.length()), null);
+        }
+        int colon = spec.lastIndexOf(':');
+        String host = colon < 0 ? "127.0.0.1" : spec.substring(0, colon);
+        int port = Integer.parseInt(spec.substring(colon + 1));
+        return new CollectorAddress(spec, null, new InetSocketAddress(host, port));
+    }
+
+    SocketChannel connect() throws IOException {
+        if (unixPath == null) {
+            return SocketChannel.open(inet);
+        }
+        SocketChannel channel = (SocketChannel) invoke(SocketChannel.class, "open", ProtocolFamily.class,
+                unixFamily());
+        try {
+            channel.connect(unixAddress());
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    ServerSocketChannel bind() throws IOException {
+        if (unixPath == null) {
+            return ServerSocketChannel.open().bind(inet);
+        }
+        // A socket file left behind by a previous collector would make bind fail.
+        Files.deleteIfExists(Paths.get(unixPath));
+        ServerSocketChannel channel = (ServerSocketChannel) invoke(ServerSocketChannel.class, "open",
+                ProtocolFamily.class, unixFamily());
+        return channel.bind(unixAddress());
+    }
+
+    void cleanUp() throws IOException {
+        if (unixPath != null) {
+            Files.deleteIfExists(Paths.get(unixPath));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    private static ProtocolFamily unixFamily() throws IOException {
+        try {
+            return StandardProtocolFamily.valueOf("UNIX");
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unix domain sockets need Java 16 or newer; use <host>:<port>", e);
+        }
+    }
+
+    private SocketAddress unixAddress() throws IOException {
+        Class<?> type;
+        try {
+            type = Class.forName("java.net.UnixDomainSocketAddress");
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unix domain sockets need Java 16 or newer; use <host>:<port>", e);
+        }
+        return (SocketAddress) invoke(type, "of", String.class, unixPath);
+    }
+
+    private static Object invoke(Class<?> owner, String factory, Class<?> parameter, Object argument)
+            throws IOException {
+        try {
+            return owner.getMethod(factory, parameter).invoke(null, argument);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } catch (ReflectiveOperationException e) {
+            throw new IOException(e);
+        }
+    }
+}
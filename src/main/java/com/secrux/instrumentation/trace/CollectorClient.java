@@ -0,0 +1,195 @@
+package com.secrux.instrumentation.trace;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams this JVM's edges to a {@link TraceCollector}; owned by the recorder's drain thread. A batch carries the
+ * symbols and hooks the collector has not yet seen on the current connection, one count record per edge whose hit
+ * total grew since the last batch, and a batch-end tag. An edge's total follows {@link TraceConverter}: the larger
+ * of its recorded events and its dedupe counter. Totals only count as sent once a batch is written completely, so a
+ * broken connection loses nothing; the next push reconnects and sends the difference. Every connection opens by naming
+ * this JVM's run directory, so the collector can refuse two agents that would write the same segments.
+ */
+final class CollectorClient {
+
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final int MAX_SYMBOL_BYTES = 0xFFFF;
+
+    private final CollectorAddress address;
+    private final byte[] runDirectory;
+    // Tells this JVM's reconnects apart from another agent claiming the same run directory.
+    private final long instance = ThreadLocalRandom.current().nextLong();
+    private final long intervalNanos;
+    // Recorded events per packed edge, counted without boxing; folded into totals once per push.
+    private final EdgeTable recorded = new EdgeTable(64);
+    // Packed edge -> {recorded events, dedupe hits, total already sent}.
+    private final Map<Long, long[]> totals = new HashMap<>();
+    private final Set<Long> dirty = new HashSet<>();
+    private final List<int[]> hooks = new ArrayList<>();
+    private final BitSet sentSymbols = new BitSet();
+    private int sentHooks;
+    private long lastPush = System.nanoTime();
+    private long backoffNanos;
+    private long nextConnect;
+    private SocketChannel channel;
+    private DataOutputStream out;
+
+    CollectorClient(CollectorAddress address, Path runDirectory, long intervalMillis) {
+        this.address = address;
+        this.runDirectory = runDirectory.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8);
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    }
+
+    void hook(int[] hook) {
+        hooks.add(hook);
+    }
+
+    void event(int hookId, int callerId, int calleeId) {
+        if (!EdgeTable.packable(hookId, callerId, calleeId)) {
+            return; // Beyond the packed id range; such edges stay in the local segments only.
+        }
+        recorded.hit(EdgeTable.pack(hookId, callerId, calleeId));
+    }
+
+    void pushIfDue(EdgeTable edges, SymbolTable symbols) {
+        if (System.nanoTime() - lastPush >= intervalNanos) {
+            push(edges, symbols);
+        }
+    }
+
+    void push(EdgeTable edges, SymbolTable symbols) {
+        lastPush = System.nanoTime();
+        recorded.forEach((key, events) -> {
+            long[] total = totals.computeIfAbsent(key, k -> new long[3]);
+            if (events > total[0]) {
+                total[0] = events;
+                dirty.add(key);
+            }
+        });
+        edges.forEach((key, hits) -> {
+            long[] total = totals.computeIfAbsent(key, k -> new long[3]);
+            if (hits > total[1]) {
+                total[1] = hits;
+                dirty.add(key);
+            }
+        });
+        if (dirty.isEmpty() || !connected()) {
+            return;
+        }
+        try {
+            for (; sentHooks < hooks.size(); sentHooks++) {
+                int[] hook = hooks.get(sentHooks);
+                symbol(symbols, hook[1]);
+                symbol(symbols, hook[2]);
+                symbol(symbols, hook[3]);
+                out.writeByte(TraceFormat.TAG_HOOK);
+                out.writeInt(hook[0]);
+                out.writeInt(hook[1]);
+                out.writeInt(hook[2]);
+                out.writeInt(hook[3]);
+            }
+            for (Long key : dirty) {
+                long[] total = totals.get(key);
+                long delta = Math.max(total[0], total[1]) - total[2];
+                if (delta <= 0) {
+                    continue;
+                }
+                symbol(symbols, EdgeTable.callerId(key));
+                symbol(symbols, EdgeTable.calleeId(key));
+                out.writeByte(TraceFormat.TAG_COUNT);
+                out.writeInt(EdgeTable.hookId(key));
+                out.writeInt(EdgeTable.callerId(key));
+                out.writeInt(EdgeTable.calleeId(key));
+                out.writeLong(delta);
+            }
+            out.writeByte(TraceFormat.TAG_BATCH_END);
+            out.flush();
+        } catch (IOException e) {
+            System.err.println("[Agent] trace collector " + address + " dropped the connection: " + e.getMessage());
+            disconnect();
+            return;
+        }
+        for (Long key : dirty) {
+            long[] total = totals.get(key);
+            total[2] = Math.max(total[0], total[1]);
+        }
+        dirty.clear();
+    }
+
+    void close() {
+        disconnect();
+    }
+
+    private boolean connected() {
+        if (out != null) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now < nextConnect) {
+            return false;
+        }
+        try {
+            channel = address.connect();
+            out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+            out.writeInt(TraceFormat.MAGIC);
+            out.writeInt(TraceFormat.VERSION);
+            out.writeByte(TraceFormat.TAG_RUN);
+            out.writeLong(instance);
+            out.writeShort(Math.min(runDirectory.length, MAX_SYMBOL_BYTES));
+            out.write(runDirectory, 0, Math.min(runDirectory.length, MAX_SYMBOL_BYTES));
+            backoffNanos = 0;
+            return true;
+        } catch (IOException e) {
+            if (backoffNanos == 0) {
+                System.err.println("[Agent] trace collector " + address + " unreachable: " + e.getMessage());
+            }
+            disconnect();
+            backoffNanos = Math.min(MAX_BACKOFF_NANOS, Math.max(TimeUnit.SECONDS.toNanos(1), backoffNanos * 2));
+            nextConnect = now + backoffNanos;
+            return false;
+        }
+    }
+
+    // Symbol ids are only meaningful per connection, so a new connection starts with none sent.
+    private void disconnect() {
+        out = null;
+        sentSymbols.clear();
+        sentHooks = 0;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Already broken; the next push reconnects.
+            }
+            channel = null;
+        }
+    }
+
+    private void symbol(SymbolTable symbols, int id) throws IOException {
+        if (id < 0 || sentSymbols.get(id)) {
+            return;
+        }
+        byte[] bytes = symbols.name(id).getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_SYMBOL_BYTES);
+        out.writeByte(TraceFormat.TAG_SYMBOL);
+        out.writeInt(id);
+        out.writeShort(length);
+        out.write(bytes, 0, length);
+        sentSymbols.set(id);
+    }
+}
@@ -0,0 +1,149 @@
+package com.secrux.instrumentation.trace;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent set of (hookId, callerId, calleeId) edges packed into primitive longs, with a hit count per edge.
+ * Lookups and count increments are lock-free; only inserting a new edge takes the lock of one stripe.
+ * Increments that race with a stripe resize may be lost, so counts are a lower bound.
+ */
+final class EdgeTable {
+
+    static final int MAX_HOOK_ID = (1 << 11) - 1;
+    static final int MAX_SYMBOL_ID = (1 << 26) - 1;
+
+    private static final long OCCUPIED = 1L << 63;
+    private static final int STRIPES = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    EdgeTable(int initialCapacityPerStripe) {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(Integer.highestOneBit(Math.max(16, initialCapacityPerStripe - 1) << 1));
+        }
+    }
+
+    /**
+     * Whether the edge fits the packed key; edges that do not are simply never deduplicated.
+     */
+    static boolean packable(int hookId, int callerId, int calleeId) {
+        return hookId <= MAX_HOOK_ID && callerId <= MAX_SYMBOL_ID && calleeId <= MAX_SYMBOL_ID;
+    }
+
+    static long pack(int hookId, int callerId, int calleeId) {
+        return OCCUPIED | ((long) hookId << 52) | ((long) callerId << 26) | calleeId;
+    }
+
+    static int hookId(long key) {
+        return (int) (key >>> 52) & MAX_HOOK_ID;
+    }
+
+    static int callerId(long key) {
+        return (int) (key >>> 26) & MAX_SYMBOL_ID;
+    }
+
+    static int calleeId(long key) {
+        return (int) key & MAX_SYMBOL_ID;
+    }
+
+    /**
+     * Counts one hit of the edge and returns {@code true} only for the first hit.
+     */
+    boolean hit(long key) {
+        int hash = mix(key);
+        return stripes[hash & (STRIPES - 1)].hit(key, hash >>> 6);
+    }
+
+    void forEach(EdgeVisitor visitor) {
+        for (Stripe stripe : stripes) {
+            stripe.forEach(visitor);
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    interface EdgeVisitor {
+        void visit(long key, long count);
+    }
+
+    private static final class Table {
+        final AtomicLongArray keys;
+        final AtomicLongArray counts;
+        final int mask;
+
+        Table(int capacity) {
+            this.keys = new AtomicLongArray(capacity);
+            this.counts = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+        }
+    }
+
+    private static final class Stripe {
+        private volatile Table table;
+        private int size;
+
+        Stripe(int capacity) {
+            this.table = new Table(capacity);
+        }
+
+        boolean hit(long key, int hash) {
+            Table current = table;
+            for (int slot = hash & current.mask; ; slot = (slot + 1) & current.mask) {
+                long existing = current.keys.get(slot);
+                if (existing == key) {
+                    current.counts.incrementAndGet(slot);
+                    return false;
+                }
+                if (existing == 0) {
+                    return insert(key, hash);
+                }
+            }
+        }
+
+        private synchronized boolean insert(long key, int hash) {
+            Table current = table;
+            int slot = hash & current.mask;
+            for (long existing; (existing = current.keys.get(slot)) != 0; slot = (slot + 1) & current.mask) {
+                if (existing == key) {
+                    current.counts.incrementAndGet(slot);
+                    return false;
+                }
+            }
+            current.counts.set(slot, 1);
+            current.keys.set(slot, key);
+            if (++size * 2 > current.mask) {
+                table = grow(current);
+            }
+            return true;
+        }
+
+        private static Table grow(Table old) {
+            Table bigger = new Table((old.mask + 1) << 1);
+            for (int i = 0; i <= old.mask; i++) {
+                long key = old.keys.get(i);
+                if (key != 0) {
+                    int slot = (mix(key) >>> 6) & bigger.mask;
+                    while (bigger.keys.get(slot) != 0) {
+                        slot = (slot + 1) & bigger.mask;
+                    }
+                    bigger.keys.set(slot, key);
+                    bigger.counts.set(slot, old.counts.get(i));
+                }
+            }
+            return bigger;
+        }
+
+        void forEach(EdgeVisitor visitor) {
+            Table current = table;
+            for (int i = 0; i <= current.mask; i++) {
+                long key = current.keys.get(i);
+                if (key != 0) {
+                    visitor.visit(key, current.counts.get(i));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.secrux.instrumentation.trace;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Bookkeeping for the incremental {@code dynamicCompare.sc} pipeline. Under {@code <compareDir>/state} it keeps a
+ * content hash of the imported sources and the keys of the trace edges already applied to the saved project, so a
+ * run only re-imports when the sources changed and only hands new edges to {@code dynamicinvokelink}.
+ * <ul>
+ * <li>{@code plan} hashes the sources, writes the not-yet-applied trace lines to {@code delta-trace.ndjson} and
+ * prints {@code import <n>} or {@code reuse <n>}.</li>
+ * <li>{@code diff} compares the {@code edges-before.tsv}/{@code edges-after.tsv} snapshots the script took around the
+ * overlay, writes each added edge with its originating hooks to {@code diff.ndjson}, and commits the state.</li>
+ * </ul>
+ * Trace lines are flat objects, so they are read without a JSON library and the tool runs from
+ * {@code target/classes} alone.
+ * <p>
+ * Usage: {@code IncrementalCompare plan <srcDir> <traceFile> <compareDir> [fresh]} or
+ * {@code IncrementalCompare diff <compareDir>}
+ */
+public final class IncrementalCompare {
+
+    static final String DELTA_TRACE = "delta-trace.ndjson";
+    static final String EDGES_BEFORE = "edges-before.tsv";
+    static final String EDGES_AFTER = "edges-after.tsv";
+    static final String DIFF = "diff.ndjson";
+
+    private static final String SOURCES_HASH = "sources.sha256";
+    private static final String PENDING_HASH = "pending.sha256";
+    private static final String APPLIED = "applied.keys";
+
+    private final Path compareDir;
+    private final Path stateDir;
+
+    IncrementalCompare(Path compareDir) {
+        this.compareDir = compareDir;
+        this.stateDir = compareDir.resolve("state");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 4 && args[0].equals("plan")) {
+            IncrementalCompare compare = new IncrementalCompare(Paths.get(args[3]));
+            boolean fresh = args.length > 4 && args[4].equals("fresh");
+            System.out.println(compare.plan(Paths.get(args[1]), Paths.get(args[2]), fresh));
+        } else if (args.length == 2 && args[0].equals("diff")) {
+            new IncrementalCompare(Paths.get(args[1])).diff().forEach(System.out::println);
+        } else {
+            System.err.println("Usage: IncrementalCompare plan <srcDir> <traceFile> <compareDir> [fresh]"
+                    + " | diff <compareDir>");
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Writes the delta trace and returns {@code import <edges>} when the project must be (re)imported, otherwise
+     * {@code reuse <edges>}. Nothing is committed until {@link #diff()} runs after the overlay.
+     */
+    String plan(Path srcDir, Path traceFile, boolean fresh) throws IOException {
+        Files.createDirectories(stateDir);
+        String hash = hashSources(srcDir);
+        Path sourcesHash = stateDir.resolve(SOURCES_HASH);
+        boolean reimport = fresh || !Files.exists(sourcesHash)
+                || !hash.equals(new String(Files.readAllBytes(sourcesHash), StandardCharsets.UTF_8));
+        Set<String> applied;
+        if (reimport) {
+            // A fresh import has none of the earlier overlay edges; forget them before anything else can fail.
+            Files.deleteIfExists(sourcesHash);
+            Files.deleteIfExists(stateDir.resolve(APPLIED));
+            applied = Collections.emptySet();
+        } else {
+            applied = new HashSet<>(readLines(stateDir.resolve(APPLIED)));
+        }
+        Files.write(stateDir.resolve(PENDING_HASH), hash.getBytes(StandardCharsets.UTF_8));
+        Files.deleteIfExists(compareDir.resolve(EDGES_BEFORE));
+        Files.deleteIfExists(compareDir.resolve(EDGES_AFTER));
+
+        int delta = 0;
+        Set<String> written = new HashSet<>();
+        try (BufferedWriter out = Files.newBufferedWriter(compareDir.resolve(DELTA_TRACE), StandardCharsets.UTF_8)) {
+            for (String line : readLines(traceFile)) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String key = edgeKey(parseFlat(line));
+                if (!applied.contains(key) && written.add(key)) {
+                    out.write(line);
+                    out.newLine();
+                    delta++;
+                }
+            }
+        }
+        return (reimport ? "import " : "reuse ") + delta;
+    }
+
+    /**
+     * Writes the added edges to {@code diff.ndjson}, records the delta as applied and returns a per-type summary.
+     */
+    List<String> diff() throws IOException {
+        Map<String, List<Map<String, String>>> traced = new HashMap<>();
+        for (String line : readLines(compareDir.resolve(DELTA_TRACE))) {
+            if (!line.trim().isEmpty()) {
+                Map<String, String> edge = parseFlat(line);
+                traced.computeIfAbsent(field(edge, "edgeType"), type -> new ArrayList<>()).add(edge);
+            }
+        }
+        Set<String> before = new HashSet<>(readLines(compareDir.resolve(EDGES_BEFORE)));
+        Map<String, Integer> addedPerType = new TreeMap<>();
+        try (BufferedWriter out = Files.newBufferedWriter(compareDir.resolve(DIFF), StandardCharsets.UTF_8)) {
+            for (String line : new LinkedHashSet<>(readLines(compareDir.resolve(EDGES_AFTER)))) {
+                String[] edge = line.split("\t", -1);
+                if (edge.length < 3 || before.contains(line)) {
+                    continue;
+                }
+                addedPerType.merge(edge[0], 1, Integer::sum);
+                long count = 0;
+                Set<String> hooks = new LinkedHashSet<>();
+                for (Map<String, String> candidate : traced.getOrDefault(edge[0], Collections.emptyList())) {
+                    if (sameMethod(edge[1], field(candidate, "caller"))
+                            && sameMethod(edge[2], field(candidate, "callee"))) {
+                        count += Long.parseLong(candidate.getOrDefault("count", "0"));
+                        hooks.add(field(candidate, "hook"));
+                    }
+                }
+                StringBuilder json = new StringBuilder("{\"edgeType\":").append(quote(edge[0]))
+                        .append(",\"src\":").append(quote(edge[1]))
+                        .append(",\"dst\":").append(quote(edge[2]))
+                        .append(",\"hooks\":[")
+                        .append(hooks.stream().map(IncrementalCompare::quote).collect(Collectors.joining(",")))
+                        .append("],\"count\":").append(count).append('}');
+                out.write(json.toString());
+                out.newLine();
+            }
+        }
+        commit(traced.values().stream().flatMap(List::stream).map(IncrementalCompare::edgeKey)
+                .collect(Collectors.toList()));
+
+        List<String> summary = new ArrayList<>();
+        addedPerType.forEach((type, count) -> summary.add("+" + count + " " + type));
+        if (summary.isEmpty()) {
+            summary.add("no new edges");
+        }
+        return summary;
+    }
+
+    private void commit(List<String> appliedKeys) throws IOException {
+        Path pending = stateDir.resolve(PENDING_HASH);
+        if (!Files.exists(pending)) {
+            throw new IOException("No pending plan in " + stateDir + "; run plan first");
+        }
+        Files.write(stateDir.resolve(APPLIED), appliedKeys, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        Files.move(pending, stateDir.resolve(SOURCES_HASH), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * SHA-256 over every regular, non-hidden file below {@code srcDir}: relative path and content, in path order.
+     */
+    static String hashSources(Path srcDir) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(srcDir)) {
+            files = walk.filter(Files::isRegularFile)
+                    .filter(path -> !srcDir.relativize(path).toString().startsWith("."))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            digest.update(srcDir.relativize(file).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Files.readAllBytes(file));
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    // Counts and timestamps change between runs of the same edge, so they are not part of its identity.
+    private static String edgeKey(Map<String, String> edge) {
+        return field(edge, "edgeType") + '\t' + field(edge, "edgeProperty") + '\t'
+                + field(edge, "caller") + '\t' + field(edge, "callee");
+    }
+
+    private static String field(Map<String, String> edge, String name) {
+        return edge.getOrDefault(name, "");
+    }
+
+    /**
+     * The fields of one flat JSON object, as written by {@link TraceConverter}: strings unescaped, numbers, booleans
+     * and {@code null} as their literal text. Nested values are not supported.
+     */
+    static Map<String, String> parseFlat(String line) throws IOException {
+        Map<String, String> fields = new LinkedHashMap<>();
+        int[] at = {skipSpace(line, 0)};
+        expect(line, at, '{');
+        if (peek(line, at) == '}') {
+            return fields;
+        }
+        do {
+            String name = readString(line, at);
+            expect(line, at, ':');
+            char first = peek(line, at);
+            if (first == '"') {
+                fields.put(name, readString(line, at));
+            } else {
+                int start = at[0];
+                while (at[0] < line.length() && ",} \t".indexOf(line.charAt(at[0])) < 0) {
+                    at[0]++;
+                }
+                if (first == '{' || first == '[' || start == at[0]) {
+                    throw new IOException("Not a flat trace line: " + line);
+                }
+                fields.put(name, line.substring(start, at[0]));
+            }
+        } while (next(line, at) == ',');
+        if (line.charAt(at[0] - 1) != '}') {
+            throw new IOException("Not a flat trace line: " + line);
+        }
+        return fields;
+    }
+
+    private static String readString(String line, int[] at) throws IOException {
+        expect(line, at, '"');
+        StringBuilder value = new StringBuilder();
+        while (at[0] < line.length()) {
+            char c = line.charAt(at[0]++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (at[0] >= line.length()) {
+                break;
+            }
+            char escaped = line.charAt(at[0]++);
+            switch (escaped) {
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'u':
+                    if (at[0] + 4 > line.length()) {
+                        throw new IOException("Truncated escape in trace line: " + line);
+                    }
+                    value.append((char) Integer.parseInt(line.substring(at[0], at[0] + 4), 16));
+                    at[0] += 4;
+                    break;
+                default:
+                    value.append(escaped);
+            }
+        }
+        throw new IOException("Unterminated string in trace line: " + line);
+    }
+
+    private static char peek(String line, int[] at) throws IOException {
+        at[0] = skipSpace(line, at[0]);
+        if (at[0] >= line.length()) {
+            throw new IOException("Truncated trace line: " + line);
+        }
+        return line.charAt(at[0]);
+    }
+
+    private static char next(String line, int[] at) throws IOException {
+        char c = peek(line, at);
+        at[0]++;
+        return c;
+    }
+
+    private static void expect(String line, int[] at, char expected) throws IOException {
+        if (next(line, at) != expected) {
+            throw new IOException("Expected '" + expected + "' at " + (at[0] - 1) + " in trace line: " + line);
+        }
+    }
+
+    private static int skipSpace(String line, int at) {
+        while (at < line.length() && Character.isWhitespace(line.charAt(at))) {
+            at++;
+        }
+        return at;
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    /**
+     * Graph names carry a Joern signature, trace callers only {@code Type.method}; compare up to the signature.
+     */
+    static boolean sameMethod(String graphName, String traceName) {
+        return stripSignature(graphName).equals(stripSignature(traceName));
+    }
+
+    private static String stripSignature(String name) {
+        int colon = name.indexOf(':');
+        int paren = name.indexOf('(');
+        int end = colon < 0 ? paren : paren < 0 ? colon : Math.min(colon, paren);
+        return end < 0 ? name : name.substring(0, end);
+    }
+
+    private static List<String> readLines(Path file) throws IOException {
+        return Files.exists(file) ? Files.readAllLines(file, StandardCharsets.UTF_8) : Collections.emptyList();
+    }
+}
@@ -0,0 +1,165 @@
+package com.secrux.instrumentation.trace;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Edges merged from every connected JVM, keyed by names rather than per-JVM symbol ids so a common edge is kept once,
+ * plus outgoing and incoming hit counts per node. Both maps are split into shards by key hash so connection threads
+ * merging different edges rarely touch the same map.
+ */
+final class MergedEdgeTable {
+
+    private static final int SHARDS = 32;
+
+    private final Shards<Edge, EdgeHits> edges = new Shards<>();
+    private final Shards<String, LongAdder[]> nodes = new Shards<>();
+    private final AtomicBoolean changed = new AtomicBoolean();
+
+    void add(String hook, String edgeType, String edgeProperty, String caller, String callee, long hits) {
+        Edge key = new Edge(hook, edgeType, edgeProperty, caller, callee);
+        edges.shard(key).computeIfAbsent(key, k -> new EdgeHits()).hits.add(hits);
+        nodeHits(caller)[0].add(hits);
+        nodeHits(callee)[1].add(hits);
+        changed.set(true);
+    }
+
+    int size() {
+        int size = 0;
+        for (Map<Edge, EdgeHits> shard : edges.shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    /**
+     * Writes the edges in the {@link TraceConverter} format to {@code traceFile} and the node counts next to it as
+     * {@code <traceFile>.nodes}, each through a temporary file so readers never see a partial table. Returns
+     * {@code false} without writing when nothing was merged since the last call.
+     */
+    boolean writeIfChanged(Path traceFile) throws IOException {
+        if (!changed.getAndSet(false)) {
+            return false;
+        }
+        Path edgeFile = temporary(traceFile);
+        try (JsonGenerator json = open(edgeFile)) {
+            for (Map<Edge, EdgeHits> shard : edges.shards) {
+                for (Map.Entry<Edge, EdgeHits> entry : shard.entrySet()) {
+                    Edge edge = entry.getKey();
+                    json.writeStartObject();
+                    json.writeStringField("hook", edge.hook);
+                    json.writeStringField("edgeType", edge.edgeType);
+                    if (edge.edgeProperty != null) {
+                        json.writeStringField("edgeProperty", edge.edgeProperty);
+                    }
+                    json.writeStringField("caller", edge.caller);
+                    json.writeStringField("callee", edge.callee);
+                    json.writeNumberField("count", entry.getValue().hits.sum());
+                    json.writeNumberField("firstSeenMillis", entry.getValue().firstSeenMillis);
+                    json.writeEndObject();
+                    json.writeRaw('\n');
+                }
+            }
+        }
+        Path nodesTarget = traceFile.resolveSibling(traceFile.getFileName() + ".nodes");
+        Path nodeFile = temporary(nodesTarget);
+        try (JsonGenerator json = open(nodeFile)) {
+            for (Map<String, LongAdder[]> shard : nodes.shards) {
+                for (Map.Entry<String, LongAdder[]> entry : shard.entrySet()) {
+                    json.writeStartObject();
+                    json.writeStringField("node", entry.getKey());
+                    json.writeNumberField("outgoing", entry.getValue()[0].sum());
+                    json.writeNumberField("incoming", entry.getValue()[1].sum());
+                    json.writeEndObject();
+                    json.writeRaw('\n');
+                }
+            }
+        }
+        Files.move(edgeFile, traceFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(nodeFile, nodesTarget, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    private LongAdder[] nodeHits(String node) {
+        return nodes.shard(node).computeIfAbsent(node, key -> new LongAdder[]{new LongAdder(), new LongAdder()});
+    }
+
+    private static Path temporary(Path target) {
+        return target.resolveSibling(target.getFileName() + ".tmp");
+    }
+
+    private static JsonGenerator open(Path file) throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+        JsonGenerator json = new JsonFactory().createGenerator(out, JsonEncoding.UTF8);
+        json.setRootValueSeparator(null);
+        return json;
+    }
+
+    private static final class Shards<K, V> {
+        final List<Map<K, V>> shards = new ArrayList<>(SHARDS);
+
+        Shards() {
+            for (int i = 0; i < SHARDS; i++) {
+                shards.add(new ConcurrentHashMap<>());
+            }
+        }
+
+        Map<K, V> shard(K key) {
+            int h = key.hashCode();
+            return shards.get((h ^ (h >>> 16)) & (SHARDS - 1));
+        }
+    }
+
+    private static final class EdgeHits {
+        final LongAdder hits = new LongAdder();
+        final long firstSeenMillis = System.currentTimeMillis();
+    }
+
+    private static final class Edge {
+        final String hook;
+        final String edgeType;
+        final String edgeProperty;
+        final String caller;
+        final String callee;
+        private final int hash;
+
+        Edge(String hook, String edgeType, String edgeProperty, String caller, String callee) {
+            this.hook = hook;
+            this.edgeType = edgeType;
+            this.edgeProperty = edgeProperty;
+            this.caller = caller;
+            this.callee = callee;
+            this.hash = Objects.hash(hook, edgeType, edgeProperty, caller, callee);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Edge)) {
+                return false;
+            }
+            Edge other = (Edge) obj;
+            return hash == other.hash && hook.equals(other.hook) && edgeType.equals(other.edgeType)
+                    && Objects.equals(edgeProperty, other.edgeProperty) && caller.equals(other.caller)
+                    && callee.equals(other.callee);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.secrux.instrumentation.trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends trace records to fixed-size memory-mapped segment files, rolling to a new file when one fills up.
+ * Only the drain thread touches a writer. Segments are numbered from zero in a directory that belongs to this run alone
+ * (see {@link TraceRecorder#runDirectory}); opening a writer on an existing directory fails rather than truncate files
+ * another JVM may still have mapped.
+ */
+final class SegmentWriter implements Closeable {
+
+    private static final int MAX_SYMBOL_BYTES = 0xFFFF;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private int index;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    SegmentWriter(Path directory, int segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        try {
+            Files.createDirectories(directory.toAbsolutePath().getParent());
+            Files.createDirectory(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to prepare trace directory " + directory, e);
+        }
+        roll();
+    }
+
+    void writeSymbol(int id, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_SYMBOL_BYTES);
+        ensure(1 + 4 + 2 + length);
+        buffer.put(TraceFormat.TAG_SYMBOL).putInt(id).putShort((short) length).put(bytes, 0, length);
+    }
+
+    void writeHook(int hookId, int nameSymbol, int edgeTypeSymbol, int edgePropertySymbol) {
+        ensure(TraceFormat.HOOK_BYTES);
+        buffer.put(TraceFormat.TAG_HOOK).putInt(hookId).putInt(nameSymbol).putInt(edgeTypeSymbol)
+                .putInt(edgePropertySymbol);
+    }
+
+    void writeEvent(int hookId, int callerSymbol, int calleeSymbol, long timestamp) {
+        ensure(TraceFormat.EVENT_BYTES);
+        buffer.put(TraceFormat.TAG_EVENT).putInt(hookId).putInt(callerSymbol).putInt(calleeSymbol).putLong(timestamp);
+    }
+
+    void writeCount(int hookId, int callerSymbol, int calleeSymbol, long hits) {
+        ensure(TraceFormat.COUNT_BYTES);
+        buffer.put(TraceFormat.TAG_COUNT).putInt(hookId).putInt(callerSymbol).putInt(calleeSymbol).putLong(hits);
+    }
+
+    /**
+     * Publishes the used length so readers (and crash recovery) see every complete record.
+     */
+    void flush() {
+        buffer.putLong(TraceFormat.USED_OFFSET, buffer.position());
+    }
+
+    @Override
+    public void close() {
+        finish();
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            roll();
+        }
+    }
+
+    private void roll() {
+        finish();
+        Path file = directory.resolve(TraceFormat.segmentName(index++));
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to map trace segment " + file, e);
+        }
+        buffer.putInt(TraceFormat.MAGIC)
+                .putInt(TraceFormat.VERSION)
+                .putLong(TraceFormat.HEADER_BYTES)
+                .putLong(System.currentTimeMillis())
+                .putLong(System.nanoTime());
+    }
+
+    private void finish() {
+        if (channel == null) {
+            return;
+        }
+        flush();
+        buffer.force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        channel = null;
+    }
+}
@@ -0,0 +1,56 @@
+package com.secrux.instrumentation.trace;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interns method and class names to dense integer ids so trace records stay fixed-size.
+ */
+final class SymbolTable {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    // Drainer-owned bookkeeping of which ids have already been written to a segment.
+    private final BitSet written = new BitSet();
+    private int lowWatermark;
+
+    int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        return ids.computeIfAbsent(name, key -> {
+            int assigned = next.getAndIncrement();
+            names.put(assigned, key);
+            return assigned;
+        });
+    }
+
+    String name(int id) {
+        return names.get(id);
+    }
+
+    /**
+     * Hands every interned-but-unwritten symbol to {@code sink}; only called from the drain thread.
+     */
+    void drainNew(SymbolSink sink) {
+        int limit = next.get();
+        for (int id = written.nextClearBit(lowWatermark); id < limit; id = written.nextClearBit(id + 1)) {
+            String name = names.get(id);
+            if (name == null) {
+                continue; // Id handed out but not yet published; picked up by the next pass.
+            }
+            sink.accept(id, name);
+            written.set(id);
+        }
+        lowWatermark = written.nextClearBit(lowWatermark);
+    }
+
+    interface SymbolSink {
+        void accept(int id, String name);
+    }
+}
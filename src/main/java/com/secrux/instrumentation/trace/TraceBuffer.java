@@ -0,0 +1,77 @@
+package com.secrux.instrumentation.trace;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-producer/single-consumer ring of fixed-size event records owned by one application thread.
+ * The owner never blocks: when the drainer falls behind, new records are counted as dropped instead.
+ */
+final class TraceBuffer {
+
+    private final int capacity;
+    private final int mask;
+    private final int[] hooks;
+    private final int[] callers;
+    private final int[] callees;
+    private final long[] times;
+    private final WeakReference<Thread> owner;
+
+    // head is only advanced by the owner, tail only by the drainer; lazySet publishes the array writes.
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    TraceBuffer(int requestedCapacity, Thread owner) {
+        this.capacity = Integer.highestOneBit(Math.max(16, requestedCapacity - 1) << 1);
+        this.mask = capacity - 1;
+        this.hooks = new int[capacity];
+        this.callers = new int[capacity];
+        this.callees = new int[capacity];
+        this.times = new long[capacity];
+        this.owner = new WeakReference<>(owner);
+    }
+
+    boolean offer(int hookId, int callerId, int calleeId, long timestamp) {
+        long position = head.get();
+        if (position - tail.get() >= capacity) {
+            dropped.lazySet(dropped.get() + 1);
+            return false;
+        }
+        int slot = (int) position & mask;
+        hooks[slot] = hookId;
+        callers[slot] = callerId;
+        callees[slot] = calleeId;
+        times[slot] = timestamp;
+        head.lazySet(position + 1);
+        return true;
+    }
+
+    int drainTo(RecordSink sink) {
+        long from = tail.get();
+        long to = head.get();
+        for (long position = from; position < to; position++) {
+            int slot = (int) position & mask;
+            sink.accept(hooks[slot], callers[slot], callees[slot], times[slot]);
+        }
+        tail.lazySet(to);
+        return (int) (to - from);
+    }
+
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    boolean isOwnerAlive() {
+        Thread thread = owner.get();
+        return thread != null && thread.isAlive();
+    }
+
+    long dropped() {
+        return dropped.get();
+    }
+
+    interface RecordSink {
+        void accept(int hookId, int callerId, int calleeId, long timestamp);
+    }
+}
@@ -0,0 +1,195 @@
+package com.secrux.instrumentation.trace;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Standalone process that agents in many JVMs stream their edges to (agent option
+ * {@code traceCollector=<port>|<host>:<port>|unix:<path>}). Edges from all connections are merged into one
+ * deduplicated {@link MergedEdgeTable}, which is flushed every {@code flushMillis} to {@code traceFile} in the format
+ * {@link TraceConverter} writes, so the overlay can read it directly. A connection naming a run directory that another
+ * agent is already streaming from is refused: the two would be overwriting each other's local segments.
+ * <p>
+ * Usage: {@code TraceCollector <port|host:port|unix:path> <traceFile> [flushMillis=5000]}
+ */
+public final class TraceCollector implements Closeable {
+
+    private final CollectorAddress address;
+    private final Path traceFile;
+    private final MergedEdgeTable merged = new MergedEdgeTable();
+    private final AtomicInteger connections = new AtomicInteger();
+    // Run directory -> {agent instance, connection} of the agent currently streaming from it.
+    private final Map<String, long[]> runs = new ConcurrentHashMap<>();
+    private final ExecutorService readers = Executors.newCachedThreadPool(daemon("secrux-collector-reader"));
+    private final ScheduledExecutorService flusher =
+            Executors.newSingleThreadScheduledExecutor(daemon("secrux-collector-flush"));
+    private ServerSocketChannel server;
+
+    TraceCollector(CollectorAddress address, Path traceFile) {
+        this.address = address;
+        this.traceFile = traceFile;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: TraceCollector <port|host:port|unix:path> <traceFile> [flushMillis=5000]");
+            System.exit(2);
+        }
+        long flushMillis = args.length > 2 ? Long.parseLong(args[2]) : 5000L;
+        TraceCollector collector = new TraceCollector(CollectorAddress.parse(args[0]), Paths.get(args[1]));
+        collector.start(flushMillis);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                collector.close();
+            } catch (IOException e) {
+                System.err.println("[Collector] final flush failed: " + e);
+            }
+        }, "secrux-collector-shutdown"));
+        System.out.println("[Collector] listening on " + args[0] + ", writing " + args[1]);
+        collector.acceptLoop();
+    }
+
+    void start(long flushMillis) throws IOException {
+        server = address.bind();
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (IOException e) {
+                System.err.println("[Collector] flush to " + traceFile + " failed: " + e);
+            }
+        }, flushMillis, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void acceptLoop() throws IOException {
+        while (server.isOpen()) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (AsynchronousCloseException e) {
+                return;
+            }
+            int connection = connections.incrementAndGet();
+            readers.execute(() -> read(connection, channel));
+        }
+    }
+
+    void flush() throws IOException {
+        if (merged.writeIfChanged(traceFile)) {
+            System.out.println("[Collector] wrote " + merged.size() + " edges to " + traceFile);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (server != null) {
+            server.close();
+            address.cleanUp();
+        }
+        readers.shutdownNow();
+        flusher.shutdown();
+        flush();
+    }
+
+    /**
+     * Reads one agent's stream. Symbol and hook ids are local to the connection; count records are held back
+     * until their batch ends so a connection that breaks mid-batch merges nothing from it.
+     */
+    private void read(int connection, SocketChannel channel) {
+        Map<Integer, String> symbols = new HashMap<>();
+        Map<Integer, String[]> hooks = new HashMap<>();
+        List<long[]> batch = new ArrayList<>();
+        long batches = 0;
+        String run = null;
+        long[] agent = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel),
+                64 * 1024))) {
+            if (in.readInt() != TraceFormat.MAGIC || in.readInt() != TraceFormat.VERSION) {
+                throw new IOException("not a trace stream");
+            }
+            for (int tag; (tag = in.read()) >= 0; ) {
+                switch (tag) {
+                    case TraceFormat.TAG_SYMBOL:
+                        int id = in.readInt();
+                        byte[] bytes = new byte[in.readUnsignedShort()];
+                        in.readFully(bytes);
+                        symbols.put(id, new String(bytes, StandardCharsets.UTF_8));
+                        break;
+                    case TraceFormat.TAG_RUN:
+                        long[] claim = {in.readLong(), connection};
+                        byte[] path = new byte[in.readUnsignedShort()];
+                        in.readFully(path);
+                        String directory = new String(path, StandardCharsets.UTF_8);
+                        // The same agent may reconnect before its broken connection has been noticed here.
+                        long[] holder = runs.merge(directory, claim, (held, next) -> held[0] == next[0] ? next : held);
+                        if (holder != claim) {
+                            throw new IOException("refused: trace directory " + directory
+                                    + " is already streamed by connection " + holder[1]
+                                    + "; two agents writing one traceDir clobber each other's segments");
+                        }
+                        run = directory;
+                        agent = claim;
+                        break;
+                    case TraceFormat.TAG_HOOK:
+                        int hookId = in.readInt();
+                        String name = symbols.get(in.readInt());
+                        String edgeType = symbols.get(in.readInt());
+                        hooks.put(hookId, new String[]{name, edgeType, symbols.get(in.readInt())});
+                        break;
+                    case TraceFormat.TAG_COUNT:
+                        batch.add(new long[]{in.readInt(), in.readInt(), in.readInt(), in.readLong()});
+                        break;
+                    case TraceFormat.TAG_BATCH_END:
+                        for (long[] edge : batch) {
+                            String[] hook = hooks.get((int) edge[0]);
+                            merged.add(hook != null ? hook[0] : String.valueOf(edge[0]),
+                                    hook != null ? hook[1] : "CALL", hook != null ? hook[2] : null,
+                                    symbols.get((int) edge[1]), symbols.get((int) edge[2]), edge[3]);
+                        }
+                        batch.clear();
+                        batches++;
+                        break;
+                    default:
+                        throw new IOException("corrupt trace stream, tag " + tag);
+                }
+            }
+        } catch (EOFException | AsynchronousCloseException e) {
+            // Agent went away mid-record, or the collector is shutting down.
+        } catch (IOException e) {
+            System.err.println("[Collector] connection " + connection + " failed: " + e.getMessage());
+        }
+        if (run != null) {
+            runs.remove(run, agent);
+        }
+        System.out.println("[Collector] connection " + connection + " closed after " + batches + " batches");
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,263 @@
+package com.secrux.instrumentation.trace;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Converts a directory of binary trace segments into the newline-delimited JSON trace file consumed by the
+ * {@code dynamicinvokelink} overlay ({@code opts.dynamicinvokelink.traceFile} in {@code dynamicCompare.sc}).
+ * Each output line is one distinct edge: {@code hook}, {@code edgeType}, optional {@code edgeProperty},
+ * {@code caller}, {@code callee}, {@code count} and {@code firstSeenMillis}. The count is the larger of the recorded
+ * events and the agent's deduplicated hit counter for that edge.
+ * <p>
+ * Usage: {@code TraceConverter <traceDir|runDir> <traceFile> [run|latest]}; see {@link #run(Path, String)}.
+ */
+public final class TraceConverter {
+
+    private final Map<Integer, String> symbols = new HashMap<>();
+    private final Map<Integer, int[]> hooks = new HashMap<>();
+    private final Map<EdgeKey, long[]> edges = new LinkedHashMap<>();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 && args.length != 3) {
+            System.err.println("Usage: TraceConverter <traceDir|runDir> <traceFile> [run|latest]");
+            System.exit(2);
+        }
+        Path runDir;
+        try {
+            runDir = run(Paths.get(args[0]), args.length > 2 ? args[2] : null);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+        long edges = new TraceConverter().convert(runDir, Paths.get(args[1]));
+        System.out.println("Wrote " + edges + " edges from " + runDir + " to " + args[1]);
+    }
+
+    /**
+     * Converts the segments of one run, as written to a {@link TraceRecorder#runDirectory}.
+     */
+    public long convert(Path runDir, Path traceFile) throws IOException {
+        List<Path> segments = segments(runDir);
+        // Symbols and hooks may be written after the events that use them, so resolve them first.
+        for (Path segment : segments) {
+            scan(segment, false, null);
+        }
+        for (Path segment : segments) {
+            scan(segment, true, (header, hookId, caller, callee, nanoTime) -> {
+                long[] edge = edges.computeIfAbsent(new EdgeKey(hookId, caller, callee), key -> new long[]{0, 0, 0});
+                long millis = header[0] + (nanoTime - header[1]) / 1_000_000L;
+                edge[0]++;
+                edge[2] = edge[0] == 1 ? millis : Math.min(edge[2], millis);
+            });
+        }
+        try (OutputStream out = Files.newOutputStream(traceFile);
+             JsonGenerator json = new JsonFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            json.setRootValueSeparator(null);
+            for (Map.Entry<EdgeKey, long[]> edge : edges.entrySet()) {
+                writeEdge(json, edge.getKey(), edge.getValue());
+            }
+        }
+        return edges.size();
+    }
+
+    /**
+     * The run directory to convert. {@code dir} may be a run directory itself; otherwise it is a {@code traceDir} and
+     * {@code run} names one of its runs, or is {@code latest} for the most recently started one. Without {@code run}
+     * the {@code traceDir} must hold a single run: symbol and hook ids mean something else in every run, so segments
+     * of different runs are never mixed.
+     */
+    static Path run(Path dir, String run) throws IOException {
+        if (isRun(dir)) {
+            return dir;
+        }
+        if (run != null && !"latest".equals(run)) {
+            Path named = dir.resolve(run);
+            if (!isRun(named)) {
+                throw new IllegalArgumentException("No trace run " + run + " in " + dir);
+            }
+            return named;
+        }
+        List<Path> runs;
+        try (Stream<Path> children = Files.list(dir)) {
+            runs = children.filter(TraceConverter::isRun).sorted().collect(Collectors.toList());
+        }
+        if (runs.isEmpty()) {
+            throw new IllegalArgumentException("No trace runs in " + dir);
+        }
+        if (run == null && runs.size() > 1) {
+            throw new IllegalArgumentException("Several trace runs in " + dir + ", pass one of "
+                    + runs.stream().map(path -> path.getFileName().toString()).collect(Collectors.joining(", "))
+                    + " or latest");
+        }
+        Path latest = runs.get(0);
+        long latestStart = startMillis(latest.resolve(TraceFormat.segmentName(0)));
+        for (Path candidate : runs) {
+            long start = startMillis(candidate.resolve(TraceFormat.segmentName(0)));
+            if (start > latestStart) {
+                latest = candidate;
+                latestStart = start;
+            }
+        }
+        return latest;
+    }
+
+    private static boolean isRun(Path dir) {
+        return Files.isRegularFile(dir.resolve(TraceFormat.segmentName(0)));
+    }
+
+    /**
+     * The segments of one run, numbered from zero without gaps.
+     */
+    static List<Path> segments(Path runDir) {
+        List<Path> segments = new ArrayList<>();
+        for (int index = 0; ; index++) {
+            Path segment = runDir.resolve(TraceFormat.segmentName(index));
+            if (!Files.isRegularFile(segment)) {
+                return segments;
+            }
+            segments.add(segment);
+        }
+    }
+
+    private static long startMillis(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment)) {
+            // Segments are mapped at full size when created, so one read returns the whole header.
+            ByteBuffer header = ByteBuffer.allocate(TraceFormat.HEADER_BYTES);
+            channel.read(header, 0);
+            return header.getLong(TraceFormat.START_MILLIS_OFFSET);
+        }
+    }
+
+    private void writeEdge(JsonGenerator json, EdgeKey key, long[] edge) {
+        int[] hook = hooks.get(key.hookId);
+        try {
+            json.writeStartObject();
+            json.writeStringField("hook", hook != null ? symbols.get(hook[0]) : String.valueOf(key.hookId));
+            json.writeStringField("edgeType", hook != null ? symbols.get(hook[1]) : "CALL");
+            if (hook != null && hook[2] >= 0) {
+                json.writeStringField("edgeProperty", symbols.get(hook[2]));
+            }
+            json.writeStringField("caller", symbols.get(key.caller));
+            json.writeStringField("callee", symbols.get(key.callee));
+            json.writeNumberField("count", Math.max(edge[0], edge[1]));
+            if (edge[2] != Long.MAX_VALUE) {
+                json.writeNumberField("firstSeenMillis", edge[2]);
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void scan(Path segment, boolean events, EventVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != TraceFormat.MAGIC || buffer.getInt() != TraceFormat.VERSION) {
+                throw new IOException("Not a trace segment: " + segment);
+            }
+            int used = (int) buffer.getLong();
+            long[] header = {buffer.getLong(), buffer.getLong()};
+            ((Buffer) buffer).limit(used); // Buffer casts keep the bytecode linkable on Java 8.
+            while (buffer.hasRemaining()) {
+                byte tag = buffer.get();
+                switch (tag) {
+                    case TraceFormat.TAG_SYMBOL:
+                        readSymbol(buffer, events);
+                        break;
+                    case TraceFormat.TAG_HOOK:
+                        int hookId = buffer.getInt();
+                        int[] hook = {buffer.getInt(), buffer.getInt(), buffer.getInt()};
+                        if (!events) {
+                            hooks.put(hookId, hook);
+                        }
+                        break;
+                    case TraceFormat.TAG_EVENT:
+                        int id = buffer.getInt();
+                        int caller = buffer.getInt();
+                        int callee = buffer.getInt();
+                        long nanoTime = buffer.getLong();
+                        if (events) {
+                            visitor.visit(header, id, caller, callee, nanoTime);
+                        }
+                        break;
+                    case TraceFormat.TAG_COUNT:
+                        EdgeKey key = new EdgeKey(buffer.getInt(), buffer.getInt(), buffer.getInt());
+                        long hits = buffer.getLong();
+                        if (events) {
+                            // Snapshots are cumulative, so the latest one wins.
+                            edges.computeIfAbsent(key, k -> new long[]{0, 0, Long.MAX_VALUE})[1] = hits;
+                        }
+                        break;
+                    default:
+                        throw new IOException("Corrupt trace segment " + segment + " at " + (buffer.position() - 1));
+                }
+            }
+        }
+    }
+
+    private void readSymbol(ByteBuffer buffer, boolean skip) {
+        int id = buffer.getInt();
+        int length = buffer.getShort() & 0xFFFF;
+        if (skip) {
+            ((Buffer) buffer).position(buffer.position() + length);
+            return;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        symbols.put(id, new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private static final class EdgeKey {
+        final int hookId;
+        final int caller;
+        final int callee;
+
+        EdgeKey(int hookId, int caller, int callee) {
+            this.hookId = hookId;
+            this.caller = caller;
+            this.callee = callee;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(hookId, caller, callee);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof EdgeKey)) {
+                return false;
+            }
+            EdgeKey other = (EdgeKey) obj;
+            return hookId == other.hookId && caller == other.caller && callee == other.callee;
+        }
+    }
+
+    private interface EventVisitor {
+        void visit(long[] header, int hookId, int caller, int callee, long nanoTime);
+    }
+}
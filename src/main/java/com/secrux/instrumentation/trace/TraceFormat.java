@@ -0,0 +1,39 @@
+package com.secrux.instrumentation.trace;
+
+/**
+ * Layout of the binary segment files written by {@link SegmentWriter}.
+ * <p>
+ * Header (32 bytes): magic, version, bytes used, wall-clock millis and {@code System.nanoTime()} at segment creation.
+ * Records follow, each starting with a one-byte tag. Symbol and hook records carry their own ids, so a reader must
+ * collect them from all segments before resolving events.
+ * <p>
+ * A {@link CollectorClient} connection uses the same records, big-endian, after an 8-byte magic and version preamble
+ * and a {@link #TAG_RUN} record. Its counts are increments rather than snapshots, and each batch ends with
+ * {@link #TAG_BATCH_END}.
+ */
+final class TraceFormat {
+
+    static final int MAGIC = 0x53585452; // "SXTR"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int USED_OFFSET = 8;
+    static final int START_MILLIS_OFFSET = 16;
+
+    static final byte TAG_SYMBOL = 1; // int id, short length, utf-8 bytes
+    static final byte TAG_HOOK = 2; // int hookId, int nameSymbol, int edgeTypeSymbol, int edgePropertySymbol (-1 = none)
+    static final byte TAG_EVENT = 3; // int hookId, int callerSymbol, int calleeSymbol, long nanoTime
+    static final byte TAG_COUNT = 4; // int hookId, int callerSymbol, int calleeSymbol, long hits (latest wins)
+    static final byte TAG_BATCH_END = 5; // collector stream only: apply the records received since the last one
+    static final byte TAG_RUN = 6; // collector stream only: long agent instance, short length, utf-8 run directory
+
+    static final int HOOK_BYTES = 1 + 4 * 4;
+    static final int EVENT_BYTES = 1 + 3 * 4 + 8;
+    static final int COUNT_BYTES = EVENT_BYTES;
+
+    private TraceFormat() {
+    }
+
+    static String segmentName(int index) {
+        return String.format("trace-%05d.seg", index);
+    }
+}
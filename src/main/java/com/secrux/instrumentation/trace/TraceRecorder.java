@@ -0,0 +1,199 @@
+package com.secrux.instrumentation.trace;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.secrux.instrumentation.AgentOptions;
+import com.secrux.instrumentation.bootstrap.HookBridge;
+
+/**
+ * Collects hook events into per-thread {@link TraceBuffer}s and drains them to segment files on a background thread.
+ * Recording is lock-free for application threads; the drain thread is the only writer of segment files, and also
+ * streams edges to a {@link TraceCollector} when one is configured.
+ */
+public final class TraceRecorder {
+
+    private final SymbolTable symbols = new SymbolTable();
+    private final EdgeTable edges = new EdgeTable(256);
+    private final Queue<TraceBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final Queue<int[]> pendingHooks = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<TraceBuffer> localBuffer = ThreadLocal.withInitial(this::register);
+    private final int bufferRecords;
+    private final long drainIntervalMillis;
+    private final long countIntervalNanos;
+    private long lastCountSnapshot = System.nanoTime();
+    private final Path directory;
+    private final SegmentWriter writer;
+    private final Thread drainer;
+    private CollectorClient collector;
+    private volatile boolean running = true;
+    private long droppedReported;
+    private long retiredDropped;
+
+    public TraceRecorder(Path directory, int bufferRecords, int segmentBytes, long drainIntervalMillis,
+                         long countIntervalMillis) {
+        this.bufferRecords = bufferRecords;
+        this.drainIntervalMillis = drainIntervalMillis;
+        this.countIntervalNanos = TimeUnit.MILLISECONDS.toNanos(countIntervalMillis);
+        this.directory = directory;
+        this.writer = new SegmentWriter(directory, segmentBytes);
+        this.drainer = new Thread(this::drainLoop, "secrux-trace-drainer");
+        drainer.setDaemon(true);
+    }
+
+    /**
+     * Options: {@code traceDir}, {@code traceBufferRecords}, {@code traceSegmentBytes}, {@code traceDrainMillis},
+     * {@code traceCountMillis}, and {@code traceCollector} with {@code traceCollectorMillis} to stream edges to a
+     * {@link TraceCollector}. Segments go to a {@link #runDirectory} under {@code traceDir}.
+     */
+    public static TraceRecorder fromOptions(AgentOptions options) {
+        TraceRecorder recorder = new TraceRecorder(
+                runDirectory(Paths.get(options.get("traceDir", "secrux-trace"))),
+                Integer.parseInt(options.get("traceBufferRecords", "8192")),
+                Integer.parseInt(options.get("traceSegmentBytes", String.valueOf(16 << 20))),
+                Long.parseLong(options.get("traceDrainMillis", "100")),
+                Long.parseLong(options.get("traceCountMillis", "10000")));
+        String collector = options.get("traceCollector");
+        if (collector != null) {
+            recorder.collector = new CollectorClient(CollectorAddress.parse(collector), recorder.directory,
+                    Long.parseLong(options.get("traceCollectorMillis", "1000")));
+        }
+        return recorder;
+    }
+
+    /**
+     * {@code <traceDir>/<pid>-<jvmStartMillis>}, so JVMs sharing a {@code traceDir} never touch each other's segments.
+     */
+    static Path runDirectory(Path traceDir) {
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        String name = runtime.getName(); // "<pid>@<host>" on HotSpot and OpenJ9
+        int at = name.indexOf('@');
+        return traceDir.resolve((at > 0 ? name.substring(0, at) : name) + "-" + runtime.getStartTime());
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    public void start() {
+        System.out.println("[Agent] tracing to " + directory);
+        drainer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop, "secrux-trace-shutdown"));
+    }
+
+    public void registerHook(int hookId, String name, String edgeType, String edgeProperty) {
+        pendingHooks.add(new int[]{
+                hookId,
+                symbols.intern(name),
+                symbols.intern(edgeType),
+                edgeProperty != null ? symbols.intern(edgeProperty) : -1
+        });
+    }
+
+    public int intern(String name) {
+        return symbols.intern(name);
+    }
+
+    /**
+     * Records one event. With {@code dedupe} a repeated edge only bumps its hit count and writes nothing.
+     */
+    public void record(int hookId, int callerId, int calleeId, boolean dedupe) {
+        if (dedupe && EdgeTable.packable(hookId, callerId, calleeId)
+                && !edges.hit(EdgeTable.pack(hookId, callerId, calleeId))) {
+            return;
+        }
+        localBuffer.get().offer(hookId, callerId, calleeId, System.nanoTime());
+    }
+
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        drainer.interrupt();
+        try {
+            drainer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private TraceBuffer register() {
+        TraceBuffer buffer = new TraceBuffer(bufferRecords, Thread.currentThread());
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    private void drainLoop() {
+        // Work done by the drainer (file mapping, privileged actions) must not feed back into the trace.
+        HookBridge.suppressCurrentThread();
+        try {
+            while (running) {
+                drainOnce();
+                try {
+                    Thread.sleep(drainIntervalMillis);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        } finally {
+            drainOnce();
+            writeCounts();
+            writer.close();
+            if (collector != null) {
+                collector.push(edges, symbols);
+                collector.close();
+            }
+        }
+    }
+
+    private void writeAndCollect(int hookId, int callerId, int calleeId, long timestamp) {
+        writer.writeEvent(hookId, callerId, calleeId, timestamp);
+        collector.event(hookId, callerId, calleeId);
+    }
+
+    private void writeCounts() {
+        lastCountSnapshot = System.nanoTime();
+        edges.forEach((key, hits) -> writer.writeCount(
+                EdgeTable.hookId(key), EdgeTable.callerId(key), EdgeTable.calleeId(key), hits));
+    }
+
+    private void drainOnce() {
+        symbols.drainNew(writer::writeSymbol);
+        for (int[] hook; (hook = pendingHooks.poll()) != null; ) {
+            writer.writeHook(hook[0], hook[1], hook[2], hook[3]);
+            if (collector != null) {
+                collector.hook(hook);
+            }
+        }
+        long dropped = retiredDropped;
+        for (Iterator<TraceBuffer> it = buffers.iterator(); it.hasNext(); ) {
+            TraceBuffer buffer = it.next();
+            buffer.drainTo(collector == null ? writer::writeEvent : this::writeAndCollect);
+            dropped += buffer.dropped();
+            if (!buffer.isOwnerAlive() && buffer.isEmpty()) {
+                retiredDropped += buffer.dropped();
+                it.remove();
+            }
+        }
+        // Events may reference names interned after the first pass; symbol records carry ids, so order is free.
+        symbols.drainNew(writer::writeSymbol);
+        if (System.nanoTime() - lastCountSnapshot >= countIntervalNanos) {
+            writeCounts();
+        }
+        writer.flush();
+        if (collector != null) {
+            collector.pushIfDue(edges, symbols);
+        }
+        if (dropped > droppedReported) {
+            System.err.println("[Agent] trace buffers full, dropped " + (dropped - droppedReported) + " events");
+            droppedReported = dropped;
+        }
+    }
+}
@@ -1,46 +1,86 @@
 package com.secrux.lambda;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.Callable;
+import java.util.function.BiFunction;
 import java.util.function.Function;
-import java.util.function.Supplier;
 
 import org.springframework.stereotype.Service;
 
+import com.secrux.config.RuntimeConfig;
+import com.secrux.decision.Decisions;
+
 /**
  * Chains lambdas that capture mutable state and method references, obscuring actual control/data flow.
  */
 @Service
 public class LambdaLabyrinth {
 
-    private final ThreadLocal<String> threadLocal = ThreadLocal.withInitial(() -> "seed");
+    // Built once; the optional path still indexes individual steps.
+    private final List<BiFunction<RunState, String, String>> pipeline = buildPipeline();
+    // Both runtime orderings are fused up front so a request only picks one and applies it.
+    private final BiFunction<RunState, String, String> normalOrder = fuse(pipeline);
+    private final BiFunction<RunState, String, String> swappedOrder = fuse(swapEnds(pipeline));
+
+    /**
+     * Mutable state shared by the steps of one run. It is handed to every step rather than kept in a
+     * {@code ThreadLocal}, so it dies with the run and nothing leaks into pooled or virtual threads.
+     */
+    static final class RunState {
+        String value = "seed";
+    }
 
     public List<String> run(String optionalInput) throws Exception {
         List<String> messages = new ArrayList<>();
-        List<Function<String, String>> pipeline = buildPipeline();
+        RunState state = new RunState();
 
-        // Compose the pipeline dynamically; static analysis must reason about each possible ordering.
-        Callable<String> composed = compose(pipeline, () -> threadLocal.get() + "::origin");
-        messages.add("Lambda pipeline: " + composed.call());
+        // The ordering is still chosen per call; static analysis must reason about each possible ordering.
+        messages.add("Lambda pipeline: " + maybeShuffle().apply(state, state.value + "::origin"));
 
         // Another execution path mutates shared state, only occurring when optional value is present at runtime.
-        Optional<String> optional = Optional.ofNullable(optionalInput != null ? optionalInput : System.getenv("SECRUX_LAMBDA"));
-        optional.map(this::reassignThreadLocal)
+        Optional<String> optional = Optional.ofNullable(optionalInput != null ? optionalInput : RuntimeConfig.current().lambdaInput());
+        optional.map(v -> reassign(state, v))
                 .map(v -> pipeline.get(v.length() % pipeline.size()))
-                .ifPresent(func -> messages.add("Optional path: " + func.apply("drift")));
+                .ifPresent(func -> messages.add("Optional path: " + func.apply(state, "drift")));
         return messages;
     }
 
-    private List<Function<String, String>> buildPipeline() {
-        List<Function<String, String>> steps = new ArrayList<>();
-        steps.add(String::trim); // Simple method reference – analyzers may overfit to this benign case.
-        steps.add(this::decorate); // Captures instance method with thread-local side effects.
-        steps.add(LambdaLabyrinth::uppercaseWithTwist); // Static method that branches on hidden state.
-        steps.add(input -> input + "::" + threadLocal.get());
-        steps.add(input -> {
+    /**
+     * Pushes every input through one ordering of the pipeline, chosen once for the whole batch.
+     * Each input gets fresh state, exactly as if it had been a request of its own. As with {@code /api/batch}, a
+     * failing or {@code null} input yields an error entry and the batch carries on.
+     */
+    public List<Map<String, Object>> runBatch(List<String> inputs) {
+        BiFunction<RunState, String, String> ordering = maybeShuffle();
+        List<Map<String, Object>> results = new ArrayList<>(inputs.size());
+        for (int index = 0; index < inputs.size(); index++) {
+            String input = inputs.get(index);
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("index", index);
+            if (input == null) {
+                entry.put("error", "Input must be a string, not null");
+            } else {
+                try {
+                    entry.put("result", ordering.apply(new RunState(), input));
+                } catch (RuntimeException e) {
+                    entry.put("error", e.getClass().getSimpleName() + ": " + e.getMessage());
+                }
+            }
+            results.add(entry);
+        }
+        return results;
+    }
+
+    private List<BiFunction<RunState, String, String>> buildPipeline() {
+        List<BiFunction<RunState, String, String>> steps = new ArrayList<>();
+        steps.add(stateless(String::trim)); // Simple method reference – analyzers may overfit to this benign case.
+        steps.add(this::decorate); // Captures instance method with side effects on the run state.
+        steps.add(stateless(LambdaLabyrinth::uppercaseWithTwist)); // Static method that branches on hidden state.
+        steps.add((state, input) -> input + "::" + state.value);
+        steps.add((state, input) -> {
             if (input.hashCode() == 0) {
                 return panicBranch(input); // Executed rarely yet visible to static tools.
             }
@@ -49,35 +89,40 @@ public class LambdaLabyrinth {
         return steps;
     }
 
-    private Callable<String> compose(List<Function<String, String>> steps, Supplier<String> seedSupplier) {
-        return () -> {
-            String value = seedSupplier.get();
-            for (Function<String, String> step : maybeShuffle(steps)) {
-                value = step.apply(value);
-            }
-            return value;
-        };
+    private static BiFunction<RunState, String, String> stateless(Function<String, String> step) {
+        return (state, input) -> step.apply(input);
     }
 
-    private List<Function<String, String>> maybeShuffle(List<Function<String, String>> steps) {
-        if (System.nanoTime() % 5 == 0) {
-            List<Function<String, String>> copy = new ArrayList<>(steps);
-            // Swap entries conditionally to introduce runtime-only permutations.
-            Function<String, String> temp = copy.get(0);
-            copy.set(0, copy.get(copy.size() - 1));
-            copy.set(copy.size() - 1, temp);
-            return copy;
+    private static BiFunction<RunState, String, String> fuse(List<BiFunction<RunState, String, String>> steps) {
+        BiFunction<RunState, String, String> fused = steps.get(0);
+        for (int i = 1; i < steps.size(); i++) {
+            BiFunction<RunState, String, String> upstream = fused;
+            BiFunction<RunState, String, String> next = steps.get(i);
+            fused = (state, input) -> next.apply(state, upstream.apply(state, input));
         }
-        return steps;
+        return fused;
+    }
+
+    private static List<BiFunction<RunState, String, String>> swapEnds(List<BiFunction<RunState, String, String>> steps) {
+        List<BiFunction<RunState, String, String>> copy = new ArrayList<>(steps);
+        BiFunction<RunState, String, String> temp = copy.get(0);
+        copy.set(0, copy.get(copy.size() - 1));
+        copy.set(copy.size() - 1, temp);
+        return copy;
     }
 
-    private String reassignThreadLocal(String value) {
-        threadLocal.set(value + System.nanoTime());
+    private BiFunction<RunState, String, String> maybeShuffle() {
+        // Swap entries conditionally to introduce runtime-only permutations.
+        return Decisions.flip("lambda.order") ? normalOrder : swappedOrder;
+    }
+
+    private String reassign(RunState state, String value) {
+        state.value = value + System.nanoTime();
         return value;
     }
 
-    private String decorate(String text) {
-        threadLocal.set(text + "*" + threadLocal.get());
+    private String decorate(RunState state, String text) {
+        state.value = text + "*" + state.value;
         return text + "-decorated";
     }
 
@@ -85,15 +130,23 @@ public class LambdaLabyrinth {
         if (text.length() % 2 == 0) {
             return text.toUpperCase();
         }
-        return Arrays.stream(text.split(":"))
-                .map(String::toLowerCase)
-                .reduce((a, b) -> b + a)
-                .orElse(text + "?twist");
+        // Lowercased ':'-separated segments joined in reverse order, scanned in place instead of split and streamed.
+        String lower = text.toLowerCase();
+        StringBuilder reversed = new StringBuilder(lower.length());
+        int end = lower.length();
+        for (int i = end - 1; i >= -1; i--) {
+            if (i < 0 || lower.charAt(i) == ':') {
+                reversed.append(lower, i + 1, end);
+                end = i;
+            }
+        }
+        // Only a text made entirely of separators has no segments left to join.
+        return reversed.length() == 0 ? text + "?twist" : reversed.toString();
     }
 
     private String panicBranch(String untouched) {
         // The branch is practically unreachable but entices static analyzers to believe it is.
-        if (System.clearProperty("neverSet") != null) {
+        if (RuntimeConfig.current().neverSet()) {
             throw new IllegalStateException("This should never happen at runtime");
         }
         return untouched + "::cold";
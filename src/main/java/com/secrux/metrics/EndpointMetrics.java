@@ -0,0 +1,98 @@
+package com.secrux.metrics;
+
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.stereotype.Component;
+
+import com.secrux.instrumentation.bootstrap.HookBridge;
+import com.secrux.instrumentation.bootstrap.StripedHistogram;
+
+/**
+ * Latency histograms per controller method, plus a view of the agent's per-hook event counts and sampled latency
+ * when it runs with {@code metrics=true}.
+ */
+@Component
+public class EndpointMetrics {
+
+    private final Map<Method, Entry> endpoints = new ConcurrentHashMap<>();
+
+    public StripedHistogram histogramFor(Method handler) {
+        Entry entry = endpoints.get(handler);
+        if (entry == null) {
+            entry = endpoints.computeIfAbsent(handler,
+                    m -> new Entry(m.getDeclaringClass().getSimpleName() + "." + m.getName()));
+        }
+        return entry.histogram;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> endpointView = new TreeMap<>();
+        for (Entry entry : endpoints.values()) {
+            endpointView.put(entry.name, describe(entry.histogram.snapshot()));
+        }
+        Map<String, Object> hookView = new TreeMap<>();
+        StripedHistogram[] hooks = HookBridge.hookLatency();
+        LongAdder[] events = HookBridge.hookEvents();
+        if (hooks != null && events != null) {
+            String[] names = HookBridge.hookNames();
+            for (int id = 0; id < hooks.length && id < events.length && id < names.length; id++) {
+                long count = events[id].sum();
+                if (count > 0) {
+                    Map<String, Object> view = new LinkedHashMap<>();
+                    view.put("events", count);
+                    view.put("sampleEvery", HookBridge.latencySampleEvery());
+                    view.put("sampled", describe(hooks[id].snapshot()));
+                    hookView.put(names[id], view);
+                }
+            }
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("endpoints", endpointView);
+        payload.put("hooks", hookView);
+        return payload;
+    }
+
+    public void reset() {
+        endpoints.values().forEach(entry -> entry.histogram.reset());
+        StripedHistogram[] hooks = HookBridge.hookLatency();
+        if (hooks != null) {
+            for (StripedHistogram histogram : hooks) {
+                histogram.reset();
+            }
+        }
+        LongAdder[] events = HookBridge.hookEvents();
+        if (events != null) {
+            for (LongAdder counter : events) {
+                counter.reset();
+            }
+        }
+    }
+
+    private static Map<String, Object> describe(long[] snapshot) {
+        long count = StripedHistogram.count(snapshot);
+        long sum = StripedHistogram.sum(snapshot);
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("count", count);
+        view.put("totalNanos", sum);
+        view.put("meanNanos", count == 0 ? 0 : sum / count);
+        view.put("p50Nanos", StripedHistogram.percentile(snapshot, 0.50));
+        view.put("p90Nanos", StripedHistogram.percentile(snapshot, 0.90));
+        view.put("p99Nanos", StripedHistogram.percentile(snapshot, 0.99));
+        view.put("maxNanos", StripedHistogram.percentile(snapshot, 1.0));
+        return view;
+    }
+
+    private static final class Entry {
+        final String name;
+        final StripedHistogram histogram = new StripedHistogram();
+
+        Entry(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.secrux.metrics;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Times every {@code com.secrux.api} handler invocation from pre-handle to completion.
+ */
+@Component
+public class EndpointMetricsInterceptor implements HandlerInterceptor {
+
+    private static final String START_ATTRIBUTE = EndpointMetricsInterceptor.class.getName() + ".start";
+
+    private final EndpointMetrics metrics;
+
+    public EndpointMetricsInterceptor(EndpointMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Async handlers pass through here again on their completion dispatch; keep the original start.
+        if (handler instanceof HandlerMethod && request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start instanceof Long && handler instanceof HandlerMethod) {
+            metrics.histogramFor(((HandlerMethod) handler).getMethod()).record(System.nanoTime() - (Long) start);
+        }
+    }
+}
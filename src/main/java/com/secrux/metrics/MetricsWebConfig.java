@@ -0,0 +1,20 @@
+package com.secrux.metrics;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class MetricsWebConfig implements WebMvcConfigurer {
+
+    private final EndpointMetricsInterceptor interceptor;
+
+    public MetricsWebConfig(EndpointMetricsInterceptor interceptor) {
+        this.interceptor = interceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(interceptor).addPathPatterns("/api/**").excludePathPatterns("/api/metrics/**");
+    }
+}
@@ -0,0 +1,35 @@
+package com.secrux.process;
+
+/**
+ * Outcome of a command run by {@link ProcessRunner}; the output itself is drained, only its size is kept.
+ */
+public final class ProcessResult {
+
+    private final int exitCode;
+    private final long outputBytes;
+    private final boolean timedOut;
+    private final long elapsedNanos;
+
+    ProcessResult(int exitCode, long outputBytes, boolean timedOut, long elapsedNanos) {
+        this.exitCode = exitCode;
+        this.outputBytes = outputBytes;
+        this.timedOut = timedOut;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
@@ -0,0 +1,145 @@
+package com.secrux.process;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.StringTokenizer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the scenario side-effect commands off the caller's thread. At most {@code secrux.process.maxConcurrent}
+ * commands run at once, with up to {@code secrux.process.queue} more waiting; beyond that a command is rejected
+ * instead of piling up. Every child has its stdin closed, its merged stdout/stderr drained through one of a few
+ * reusable buffers, is waited for (so it never lingers as a zombie) and is killed after
+ * {@code secrux.process.timeoutMillis}.
+ *
+ * <p>The scenarios create their own instances reflectively and outside Spring, so they reach the runner through
+ * {@link #shared()} rather than injection.</p>
+ */
+public final class ProcessRunner {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private static final ProcessRunner SHARED = new ProcessRunner(
+            Integer.getInteger("secrux.process.maxConcurrent", 8),
+            Integer.getInteger("secrux.process.queue", 256),
+            Long.getLong("secrux.process.timeoutMillis", 10_000L));
+
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService reaper;
+    private final BlockingQueue<byte[]> buffers;
+    private final long timeoutMillis;
+
+    public ProcessRunner(int maxConcurrent, int queueCapacity, long timeoutMillis) {
+        this.workers = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreads("secrux-process-"));
+        this.reaper = Executors.newSingleThreadScheduledExecutor(daemonThreads("secrux-process-timeout-"));
+        // One buffer per worker: a worker only ever drains one child at a time.
+        this.buffers = new ArrayBlockingQueue<>(maxConcurrent);
+        for (int i = 0; i < maxConcurrent; i++) {
+            buffers.add(new byte[BUFFER_SIZE]);
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public static ProcessRunner shared() {
+        return SHARED;
+    }
+
+    /**
+     * Splits {@code command} on whitespace exactly like {@link Runtime#exec(String)} does.
+     */
+    public CompletableFuture<ProcessResult> execute(String command) {
+        StringTokenizer tokens = new StringTokenizer(command);
+        String[] args = new String[tokens.countTokens()];
+        for (int i = 0; tokens.hasMoreTokens(); i++) {
+            args[i] = tokens.nextToken();
+        }
+        return execute(args);
+    }
+
+    /**
+     * Queues {@code command} and returns immediately; the future fails if the command cannot be started or the
+     * queue is full.
+     */
+    public CompletableFuture<ProcessResult> execute(String... command) {
+        CompletableFuture<ProcessResult> result = new CompletableFuture<>();
+        try {
+            workers.execute(() -> {
+                try {
+                    result.complete(runToCompletion(command));
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private ProcessResult runToCompletion(String[] command) throws IOException, InterruptedException {
+        if (command.length == 0) {
+            throw new IllegalArgumentException("Empty command");
+        }
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        ScheduledFuture<?> timeout = reaper.schedule(process::destroyForcibly, timeoutMillis, TimeUnit.MILLISECONDS);
+        byte[] buffer = buffers.take();
+        long outputBytes = 0;
+        try {
+            process.getOutputStream().close();
+            try (InputStream output = process.getInputStream()) {
+                for (int read; (read = output.read(buffer)) != -1; ) {
+                    outputBytes += read;
+                }
+            }
+            int exitCode = process.waitFor();
+            boolean timedOut = !timeout.cancel(false);
+            return new ProcessResult(exitCode, outputBytes, timedOut, System.nanoTime() - start);
+        } finally {
+            buffers.add(buffer);
+            if (process.isAlive()) {
+                // Only reached when draining failed; never leave the child behind.
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * Blocks for {@code future}, rethrowing the original failure instead of an {@link ExecutionException}.
+     */
+    public static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger ids = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, prefix + ids.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
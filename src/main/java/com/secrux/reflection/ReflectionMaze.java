@@ -1,61 +1,91 @@
 package com.secrux.reflection;
 
-import java.io.IOException;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.stereotype.Service;
 
+import com.secrux.config.RuntimeConfig;
+import com.secrux.decision.Decisions;
+import com.secrux.process.ProcessRunner;
+
 /**
  * Loads behavior through reflection using multiple class aliases and name indirections.
  */
 @Service
 public class ReflectionMaze {
 
-    private final Map<String, String> aliasToClass = new HashMap<>();
+    private static final String[] ALIASES = {"A", "B", "Shadow"};
+
+    private final Map<String, String> aliasToClass = new ConcurrentHashMap<>();
+    private final Map<DispatchKey, Dispatch> dispatchCache = new ConcurrentHashMap<>();
+    // Last Shadow mapping seen; read on every Shadow request so the shared maps are only written when it moves.
+    private volatile String shadowClass;
 
     public ReflectionMaze() {
         // Provide multiple aliases pointing to the same or different classes to fuzz pointer analysis.
         aliasToClass.put("A", CandidateA.class.getName());
         aliasToClass.put("B", CandidateB.class.getName());
-        aliasToClass.put("Shadow", System.getProperty("secrux.ref.impl", CandidateA.class.getName()));
+        shadowClass = RuntimeConfig.current().shadowImpl(CandidateA.class.getName());
+        aliasToClass.put("Shadow", shadowClass);
     }
 
     public String run(List<String> commandInput) throws Exception {
+        return ProcessRunner.await(runAsync(commandInput));
+    }
+
+    /**
+     * Completes once the command spawned on the no-parameter path has exited; the caller's thread is not held meanwhile.
+     */
+    public CompletableFuture<String> runAsync(List<String> commandInput) throws Exception {
         List<String> sanitizedCommand = (commandInput == null || commandInput.isEmpty())
                 ? Arrays.asList("echo", "ReflectionMaze executed")
                 : commandInput;
         String[] args = sanitizedCommand.toArray(new String[0]);
         String alias = selectAlias();
-        String className = aliasToClass.get(alias);
-
-        // The class is only known at runtime; static analyzers must join potential targets.
-        Class<?> targetClass = Class.forName(className);
-        Constructor<?> ctor = targetClass.getDeclaredConstructor();
-        Object instance = ctor.newInstance();
-
-        Class<?>[] classes= new Class<?>[]{};
+        String className = resolveClassName(alias);
 
         String methodName = resolveMethodName(alias);
-
-        if((alias.equals("A")||alias.equals("Shadow")) && !methodName.equals("compute")) {
-            classes= new Class<?>[]{String[].class};
+        boolean withParams = (alias.equals("A") || alias.equals("Shadow")) && !methodName.equals("compute");
+
+        // The class is only known at runtime; reflection is paid once per (alias, method, shape) and then cached.
+        Dispatch dispatch = dispatchCache.computeIfAbsent(new DispatchKey(alias, methodName, withParams),
+                key -> Dispatch.resolve(className, key));
+        if (!dispatch.className.equals(className)) {
+            // Shadow was remapped between lookup and use; resolve against the fresh mapping.
+            dispatch = Dispatch.resolve(className, dispatch.key);
+            dispatchCache.put(dispatch.key, dispatch);
         }
 
-        Method method = targetClass.getMethod(methodName,classes);
+        if (!withParams) {
+            String message = "Reflection result from alias " + alias + ": " + dispatch.invoke(null);
+            return ProcessRunner.shared().execute(args).thenApply(done -> message);
+        }
+        Object result = dispatch.invoke(args);
+        return CompletableFuture.completedFuture("Reflection result from alias " + alias + ": " + result);
+    }
 
-        if(classes.length == 0) {
-            Object result = method.invoke(instance);
-            Runtime.getRuntime().exec(args);
-            return "Reflection result from alias " + alias + ": " + result;
+    private String resolveClassName(String alias) {
+        if (!alias.equals("Shadow")) {
+            return aliasToClass.get(alias);
         }
-        Object result = method.invoke(instance, (Object) args);
-        return "Reflection result from alias " + alias + ": " + result;
+        String shadow = RuntimeConfig.current().shadowImpl(CandidateA.class.getName());
+        if (!shadow.equals(shadowClass)) {
+            // A config reload moved the Shadow mapping; cached handles bound to the old class are no longer valid.
+            // Racing requests may both get here, which only repeats the same writes.
+            shadowClass = shadow;
+            aliasToClass.put("Shadow", shadow);
+            dispatchCache.keySet().removeIf(key -> key.alias.equals("Shadow"));
+        }
+        return shadow;
     }
 
     private String resolveMethodName(String alias) {
@@ -66,17 +96,98 @@ public class ReflectionMaze {
             case "Shadow":
                 return "act"; // When alias rewrites to CandidateA, method still differs.
             default:
-                return System.currentTimeMillis() % 2 == 0 ? "act" : "compute";
+                return Decisions.flip("reflection.method") ? "act" : "compute";
         }
     }
 
     private String selectAlias() {
-        // Environment variable can pin the alias, else we oscillate to inject non-determinism.
-        String forced = System.getenv("SECRUX_ALIAS");
+        // Environment variable can pin the alias, else the decision source picks one to inject non-determinism.
+        String forced = RuntimeConfig.current().alias();
         if (forced != null && aliasToClass.containsKey(forced)) {
             return forced;
         }
-        return System.nanoTime() % 3 == 0 ? "A" : (System.nanoTime() % 2 == 0 ? "B" : "Shadow");
+        return ALIASES[Decisions.choose("reflection.alias", ALIASES.length)];
+    }
+
+    /**
+     * Cache key for a resolved reflective target: alias, method name and whether the method takes {@code String[]}.
+     */
+    private static final class DispatchKey {
+        private final String alias;
+        private final String methodName;
+        private final boolean withParams;
+
+        DispatchKey(String alias, String methodName, boolean withParams) {
+            this.alias = alias;
+            this.methodName = methodName;
+            this.withParams = withParams;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(alias, methodName, withParams);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof DispatchKey)) {
+                return false;
+            }
+            DispatchKey other = (DispatchKey) obj;
+            return withParams == other.withParams && alias.equals(other.alias) && methodName.equals(other.methodName);
+        }
+    }
+
+    /**
+     * Pre-bound constructor and method handles; each call still creates a fresh instance like the reflective path did.
+     */
+    private static final class Dispatch {
+        private static final MethodType NO_ARG_INVOKER = MethodType.methodType(Object.class, Object.class);
+        private static final MethodType ARRAY_INVOKER = MethodType.methodType(Object.class, Object.class, String[].class);
+
+        private final DispatchKey key;
+        private final String className;
+        private final MethodHandle constructor;
+        private final MethodHandle method;
+
+        private Dispatch(DispatchKey key, String className, MethodHandle constructor, MethodHandle method) {
+            this.key = key;
+            this.className = className;
+            this.constructor = constructor;
+            this.method = method;
+        }
+
+        static Dispatch resolve(String className, DispatchKey key) {
+            try {
+                Class<?> targetClass = Class.forName(className);
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                MethodHandle ctor = lookup.unreflectConstructor(targetClass.getDeclaredConstructor())
+                        .asType(MethodType.methodType(Object.class));
+                Class<?>[] classes = key.withParams ? new Class<?>[]{String[].class} : new Class<?>[]{};
+                MethodHandle target = lookup.unreflect(targetClass.getMethod(key.methodName, classes))
+                        .asType(key.withParams ? ARRAY_INVOKER : NO_ARG_INVOKER);
+                return new Dispatch(key, className, ctor, target);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Unable to resolve " + className + "#" + key.methodName, e);
+            }
+        }
+
+        Object invoke(String[] args) throws Exception {
+            try {
+                Object instance = (Object) constructor.invokeExact();
+                if (args == null) {
+                    return (Object) method.invokeExact(instance);
+                }
+                return (Object) method.invokeExact(instance, args);
+            } catch (Exception | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(t);
+            }
+        }
     }
 
     public static class CandidateA implements Callable<String> {
@@ -89,12 +200,8 @@ public class ReflectionMaze {
          * Method intentionally lightweight; reflective dispatcher may pick this or others.
          */
         public String act(String[] params) {
-            Runtime runtime = Runtime.getRuntime();
-            try {
-                runtime.exec(params);
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+            // Fire and forget: the runner still drains, reaps and times out the child.
+            ProcessRunner.shared().execute(params);
             return "A-act";
         }
 
@@ -107,7 +214,7 @@ public class ReflectionMaze {
         @Override
         public void run() {
             // Unreachable in normal execution but looks viable to static tools.
-            if (System.getProperty("secrux.trigger") != null) {
+            if (RuntimeConfig.current().trigger()) {
                 System.out.println("B-run" + compute());
             }
         }
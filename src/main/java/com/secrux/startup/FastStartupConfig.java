@@ -0,0 +1,47 @@
+package com.secrux.startup;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * With {@code -Dsecrux.startup=fast} (set by the {@code fast-startup} Maven profile) the scenario services and the
+ * controllers and batch runner that depend on them are created on first use instead of during startup. Handler
+ * mappings only need the controllers' types, so a lazy controller is first instantiated by its first request.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "secrux.startup", havingValue = "fast")
+public class FastStartupConfig {
+
+    private static final String[] LAZY_PACKAGES = {
+            "com.secrux.aliasing.", "com.secrux.api.", "com.secrux.batch.", "com.secrux.dynamic.",
+            "com.secrux.lambda.", "com.secrux.reflection.", "com.secrux.unreachable."
+    };
+
+    // Static so the post-processor does not force this configuration class to be created early.
+    @Bean
+    public static BeanFactoryPostProcessor lazyScenarioBeans() {
+        return beanFactory -> {
+            for (String name : beanFactory.getBeanDefinitionNames()) {
+                BeanDefinition definition = beanFactory.getBeanDefinition(name);
+                if (isScenarioBean(definition.getBeanClassName())) {
+                    definition.setLazyInit(true);
+                }
+            }
+        };
+    }
+
+    private static boolean isScenarioBean(String className) {
+        if (className == null) {
+            return false;
+        }
+        for (String prefix : LAZY_PACKAGES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,172 @@
+package com.secrux.startup;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.secrux.instrumentation.AgentStartupReport;
+import com.secrux.instrumentation.SecruxAgent;
+
+/**
+ * Startup timeline: JVM uptime when {@code main} ran, when the context was ready and when the first request was
+ * served, the agent's install cost, and per-bean instantiation time (inclusive and excluding the beans created as its
+ * dependencies). Served at {@code /api/startup}; with {@code -Dsecrux.startup.timeline=<file>} it is also written
+ * there once the first request has been served, so CI can compare it across builds.
+ */
+@Component
+public class StartupRecorder implements Filter {
+
+    private static final String BEAN_STEP = "spring.beans.instantiate";
+
+    private static volatile long mainUptimeMillis = -1;
+
+    private final ApplicationStartup applicationStartup;
+    private final ObjectMapper objectMapper;
+    private final AtomicBoolean firstRequest = new AtomicBoolean();
+    private volatile long readyUptimeMillis = -1;
+    private volatile long firstRequestUptimeMillis = -1;
+    private volatile String firstRequestPath;
+
+    public StartupRecorder(ApplicationStartup applicationStartup, ObjectMapper objectMapper) {
+        this.applicationStartup = applicationStartup;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Called first thing in {@code main}: notes the JVM's uptime and buffers bean instantiation steps.
+     */
+    public static void configure(SpringApplication application) {
+        mainUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        BufferingApplicationStartup startup = new BufferingApplicationStartup(10_000);
+        startup.addFilter(step -> BEAN_STEP.equals(step.getName()));
+        application.setApplicationStartup(startup);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ready() {
+        readyUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        chain.doFilter(request, response);
+        if (firstRequestUptimeMillis < 0 && firstRequest.compareAndSet(false, true)) {
+            firstRequestPath = request instanceof HttpServletRequest
+                    ? ((HttpServletRequest) request).getRequestURI()
+                    : null;
+            firstRequestUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+            String file = System.getProperty("secrux.startup.timeline");
+            if (file != null) {
+                write(Paths.get(file));
+            }
+        }
+    }
+
+    public Map<String, Object> describe() {
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("mode", System.getProperty("secrux.startup", "default"));
+        view.put("sharedArchive", sharedArchive(runtime.getInputArguments()));
+        view.put("mainUptimeMillis", mainUptimeMillis);
+        view.put("readyUptimeMillis", readyUptimeMillis);
+        view.put("firstRequestUptimeMillis", firstRequestUptimeMillis);
+        view.put("firstRequestPath", firstRequestPath);
+        AgentStartupReport agent = SecruxAgent.startupReport();
+        view.put("agent", agent != null ? agent.describe() : null);
+        view.put("beans", beans());
+        return view;
+    }
+
+    private void write(Path file) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Files.write(file, objectMapper.writer().with(SerializationFeature.INDENT_OUTPUT)
+                    .writeValueAsBytes(describe()));
+        } catch (IOException e) {
+            System.err.println("[Startup] unable to write timeline to " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Bean instantiations, slowest first by their own time, i.e. without the nested instantiations of their
+     * dependencies. Lazy beans appear once their first use has created them.
+     */
+    private List<Map<String, Object>> beans() {
+        if (!(applicationStartup instanceof BufferingApplicationStartup)) {
+            return null;
+        }
+        List<StartupTimeline.TimelineEvent> events =
+                ((BufferingApplicationStartup) applicationStartup).getBufferedTimeline().getEvents();
+        Map<Long, Long> nestedNanos = new HashMap<>();
+        for (StartupTimeline.TimelineEvent event : events) {
+            Long parent = event.getStartupStep().getParentId();
+            if (parent != null) {
+                nestedNanos.merge(parent, event.getDuration().toNanos(), Long::sum);
+            }
+        }
+        List<Map<String, Object>> beans = new ArrayList<>(events.size());
+        for (StartupTimeline.TimelineEvent event : events) {
+            StartupStep step = event.getStartupStep();
+            long totalNanos = event.getDuration().toNanos();
+            long selfNanos = totalNanos - nestedNanos.getOrDefault(step.getId(), 0L);
+            Map<String, Object> bean = new LinkedHashMap<>();
+            bean.put("bean", tag(step, "beanName"));
+            bean.put("selfMicros", TimeUnit.NANOSECONDS.toMicros(selfNanos));
+            bean.put("totalMicros", TimeUnit.NANOSECONDS.toMicros(totalNanos));
+            beans.add(bean);
+        }
+        beans.sort(Comparator.comparing(bean -> -(Long) bean.get("selfMicros")));
+        return beans;
+    }
+
+    private static String tag(StartupStep step, String key) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if (key.equals(tag.getKey())) {
+                return tag.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static String sharedArchive(List<String> jvmArguments) {
+        for (String argument : jvmArguments) {
+            if (argument.startsWith("-XX:SharedArchiveFile=")) {
+                return argument.substring("-XX:SharedArchiveFile=".length());
+            }
+        }
+        return null;
+    }
+}
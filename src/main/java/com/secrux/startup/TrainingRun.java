@@ -0,0 +1,44 @@
+package com.secrux.startup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * With {@code -Dsecrux.startup.training=true} (the {@code cds} Maven profile) the application serves one request to
+ * each side-effect-free scenario and exits, so a class-data-sharing archive dumped at exit also holds the classes
+ * that the first requests load.
+ */
+@Component
+@ConditionalOnProperty(name = "secrux.startup.training", havingValue = "true")
+public class TrainingRun {
+
+    private static final String[] PATHS = {"/api/unreachable", "/api/lambda", "/api/aliasing", "/api/config"};
+
+    @EventListener
+    public void ready(ApplicationReadyEvent event) {
+        String port = event.getApplicationContext().getEnvironment().getProperty("local.server.port");
+        for (String path : PATHS) {
+            try {
+                HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + path)
+                        .openConnection();
+                try (InputStream in = connection.getInputStream()) {
+                    while (in.read() >= 0) {
+                        // Drained so the whole response path runs.
+                    }
+                }
+                System.out.println("[Startup] training " + path + " -> " + connection.getResponseCode());
+            } catch (IOException e) {
+                System.err.println("[Startup] training " + path + " failed: " + e);
+            }
+        }
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
@@ -0,0 +1,520 @@
+package com.secrux.synthetic;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Emits a synthetic source tree of parameterized copies of the five scenario patterns so analyzer cost can be
+ * measured against code size: {@code ReflectionMaze} aliases, {@code ChaoticHandler} delegates,
+ * {@code LambdaLabyrinth} steps, {@code AliasingAmbiguity} pools and {@code UnreachableTrap} guards.
+ *
+ * <pre>ScenarioGenerator &lt;outDir&gt; [scenarios=1000] [seed=42]</pre>
+ *
+ * Scenarios are spread over packages of {@value #PER_PACKAGE} and each carries its own nested candidates,
+ * delegates or resources, so the class count grows a few times faster than the scenario count. Every scenario
+ * also calls into an earlier one, giving the call graph cross-package edges. The tree only depends on the JDK;
+ * {@code com.secrux.synthetic.gen.SyntheticDriver} runs every scenario once, for tracing under the agent.
+ * The same seed and count always produce byte-identical files.
+ */
+public final class ScenarioGenerator {
+
+    static final String BASE_PACKAGE = "com.secrux.synthetic.gen";
+    static final int PER_PACKAGE = 100;
+
+    private static final String[] KINDS = {"ReflectionMaze", "ChaoticProxy", "LambdaPipeline", "AliasingPools",
+            "UnreachableGuard"};
+
+    private final Path sourceRoot;
+    private final int scenarios;
+    private final long seed;
+
+    ScenarioGenerator(Path sourceRoot, int scenarios, long seed) {
+        this.sourceRoot = sourceRoot;
+        this.scenarios = scenarios;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ScenarioGenerator <outDir> [scenarios=1000] [seed=42]");
+            System.exit(1);
+        }
+        int scenarios = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        long start = System.nanoTime();
+        int classes = new ScenarioGenerator(Paths.get(args[0]), scenarios, seed).generate();
+        System.out.println("[Generator] wrote " + scenarios + " scenarios (" + classes + " classes) to " + args[0]
+                + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * Writes the tree and returns the number of top-level and nested classes generated.
+     */
+    int generate() throws IOException {
+        int classes = 0;
+        List<String> packageDrivers = new ArrayList<>();
+        for (int first = 0; first < scenarios; first += PER_PACKAGE) {
+            String pkg = packageOf(first);
+            List<String> names = new ArrayList<>();
+            for (int index = first; index < Math.min(first + PER_PACKAGE, scenarios); index++) {
+                // Per-scenario streams keep each file stable when the total count changes.
+                SplittableRandom random = new SplittableRandom(seed ^ (index * 0x9E3779B97F4A7C15L));
+                Source source = new Source(pkg, className(index));
+                classes += emit(index, source, random);
+                write(pkg, source.name, source.toString());
+                names.add(source.name);
+            }
+            write(pkg, "PackageDriver", packageDriver(pkg, names));
+            packageDrivers.add(pkg + ".PackageDriver");
+            classes++;
+        }
+        write(BASE_PACKAGE, "SyntheticDriver", syntheticDriver(packageDrivers));
+        return classes + 1;
+    }
+
+    private int emit(int index, Source out, SplittableRandom random) {
+        // An earlier scenario to call into, or none for the very first one.
+        String link = index == 0 ? null : qualifiedName(random.nextInt(index));
+        switch (index % KINDS.length) {
+            case 0:
+                return reflectionMaze(out, random, link);
+            case 1:
+                return chaoticProxy(out, random, link);
+            case 2:
+                return lambdaPipeline(out, random, link);
+            case 3:
+                return aliasingPools(out, random, link);
+            default:
+                return unreachableGuard(out, random, link);
+        }
+    }
+
+    private static int reflectionMaze(Source out, SplittableRandom random, String link) {
+        int candidates = 2 + random.nextInt(4);
+        out.imports("java.lang.reflect.Method", "java.util.ArrayList", "java.util.HashMap", "java.util.List",
+                "java.util.Map", "java.util.concurrent.Callable");
+        out.open("public class " + out.name + " implements Callable<List<String>>");
+        out.line("private final Map<String, String> aliasToClass = new HashMap<>();");
+        out.line("private final String[] aliases = new String[" + (candidates + 1) + "];");
+        out.line("");
+        out.open("public " + out.name + "()");
+        for (int c = 0; c < candidates; c++) {
+            out.line("aliases[" + c + "] = \"A" + c + "\";");
+            out.line("aliasToClass.put(\"A" + c + "\", Candidate" + c + ".class.getName());");
+        }
+        out.line("aliases[" + candidates + "] = \"Shadow\";");
+        out.line("aliasToClass.put(\"Shadow\", System.getProperty(\"secrux.synthetic.shadow." + out.name
+                + "\", Candidate" + random.nextInt(candidates) + ".class.getName()));");
+        out.close();
+        out.line("");
+        out.line("@Override");
+        out.open("public List<String> call() throws Exception");
+        out.line("List<String> messages = new ArrayList<>();");
+        out.line("String alias = aliases[(int) ((System.nanoTime() >>> 4) % aliases.length)];");
+        out.line("Class<?> type = Class.forName(aliasToClass.get(alias));");
+        out.line("Object instance = type.getDeclaredConstructor().newInstance();");
+        out.line("Method method = type.getMethod(System.nanoTime() % 2 == 0 ? \"act\" : \"compute\", String.class);");
+        out.line("messages.add(\"Reflection \" + alias + \": \" + method.invoke(instance, alias));");
+        out.line("return messages;");
+        out.close();
+        touch(out);
+        for (int c = 0; c < candidates; c++) {
+            out.line("");
+            out.open("public static class Candidate" + c);
+            out.open("public String act(String input)");
+            out.line("return " + (link != null && random.nextBoolean() ? link + ".touch(input)" : "\"act" + c + ":\" + input") + ";");
+            out.close();
+            out.line("");
+            out.open("public String compute(String input)");
+            out.line("return \"compute" + c + ":\" + input.length();");
+            out.close();
+            out.close();
+        }
+        out.close();
+        return 1 + candidates;
+    }
+
+    private static int chaoticProxy(Source out, SplittableRandom random, String link) {
+        int delegates = 2 + random.nextInt(4);
+        out.imports("java.lang.reflect.InvocationHandler", "java.lang.reflect.Method", "java.lang.reflect.Proxy",
+                "java.util.ArrayList", "java.util.HashMap", "java.util.List", "java.util.Map", "java.util.Objects",
+                "java.util.concurrent.Callable");
+        out.open("public class " + out.name + " implements Callable<List<String>>");
+        out.open("public interface Operation");
+        out.line("String execute(String input);");
+        out.close();
+        for (int d = 0; d < delegates; d++) {
+            out.line("");
+            out.open("static class Delegate" + d + " implements Operation");
+            out.line("@Override");
+            out.open("public String execute(String input)");
+            switch (random.nextInt(4)) {
+                case 0:
+                    out.line("return new StringBuilder(input).reverse().append(\"#" + d + "\").toString();");
+                    break;
+                case 1:
+                    out.line("return \"detached" + d + ":\" + input.toUpperCase();");
+                    break;
+                case 2:
+                    out.line("return " + (link != null ? link + ".touch(input)" : "input") + ";");
+                    break;
+                default:
+                    out.line("return input + \"::" + d + "\";");
+            }
+            out.close();
+            out.close();
+        }
+        out.line("");
+        out.open("static class Handler implements InvocationHandler");
+        out.line("private final Map<String, Operation> operations = new HashMap<>();");
+        out.line("private final String fallbackToken;");
+        out.line("");
+        out.open("Handler(String fallbackToken)");
+        out.line("this.fallbackToken = fallbackToken;");
+        for (int d = 0; d < delegates; d++) {
+            out.line("operations.put(\"d" + d + "\", new Delegate" + d + "());");
+        }
+        out.close();
+        out.line("");
+        out.line("@Override");
+        out.open("public Object invoke(Object proxy, Method method, Object[] args) throws Throwable");
+        out.line("String key = Objects.equals(args[0], fallbackToken)");
+        out.line("        ? \"d" + (delegates - 1) + "\"");
+        out.line("        : \"d\" + Math.floorMod(args[0].hashCode() ^ (int) System.nanoTime(), " + delegates + ");");
+        out.line("return method.invoke(operations.get(key), args);");
+        out.close();
+        out.close();
+        out.line("");
+        out.line("@Override");
+        out.open("public List<String> call()");
+        out.line("List<String> messages = new ArrayList<>();");
+        out.line("Operation operation = (Operation) Proxy.newProxyInstance(Operation.class.getClassLoader(),");
+        out.line("        new Class<?>[]{Operation.class}, new Handler(\"fallback" + out.name + "\"));");
+        out.line("messages.add(operation.execute(\"alpha\"));");
+        out.line("messages.add(operation.execute(\"fallback" + out.name + "\"));");
+        out.line("return messages;");
+        out.close();
+        touch(out);
+        out.close();
+        return 3 + delegates;
+    }
+
+    private static int lambdaPipeline(Source out, SplittableRandom random, String link) {
+        int steps = 3 + random.nextInt(6);
+        out.imports("java.util.ArrayList", "java.util.List", "java.util.concurrent.Callable",
+                "java.util.function.Function");
+        out.open("public class " + out.name + " implements Callable<List<String>>");
+        out.line("private final List<Function<String, String>> steps = new ArrayList<>();");
+        out.line("private String state = \"seed\";");
+        out.line("");
+        out.open("public " + out.name + "()");
+        for (int s = 0; s < steps; s++) {
+            switch (random.nextInt(6)) {
+                case 0:
+                    out.line("steps.add(String::trim);");
+                    break;
+                case 1:
+                    out.line("steps.add(this::decorate);");
+                    break;
+                case 2:
+                    out.line("steps.add(" + out.name + "::twist);");
+                    break;
+                case 3:
+                    out.line("steps.add(input -> input + \"::\" + state);");
+                    break;
+                case 4:
+                    out.line("steps.add(" + (link != null ? link + "::touch" : out.name + "::twist") + ");");
+                    break;
+                default:
+                    out.open("steps.add(input -> ", "");
+                    out.open("if (input.hashCode() == " + random.nextInt() + ")");
+                    out.line("return input + \"::cold\";");
+                    out.close();
+                    out.line("return input;");
+                    out.close("});");
+            }
+        }
+        out.close();
+        out.line("");
+        out.line("@Override");
+        out.open("public List<String> call()");
+        out.line("List<String> messages = new ArrayList<>();");
+        out.line("List<Function<String, String>> ordered = steps;");
+        out.open("if (System.nanoTime() % 5 == 0)");
+        out.line("ordered = new ArrayList<>(steps);");
+        out.line("ordered.set(0, steps.get(steps.size() - 1));");
+        out.line("ordered.set(steps.size() - 1, steps.get(0));");
+        out.close();
+        out.line("String value = state;");
+        out.open("for (Function<String, String> step : ordered)");
+        out.line("value = step.apply(value);");
+        out.close();
+        out.line("messages.add(\"Lambda pipeline: \" + value);");
+        out.line("return messages;");
+        out.close();
+        out.line("");
+        out.open("private String decorate(String text)");
+        out.line("state = text.length() + \"*\";");
+        out.line("return text + \"-decorated\";");
+        out.close();
+        out.line("");
+        out.open("private static String twist(String text)");
+        out.line("return text.length() % 2 == 0 ? text.toUpperCase() : text.toLowerCase();");
+        out.close();
+        touch(out);
+        out.close();
+        return 1;
+    }
+
+    private static int aliasingPools(Source out, SplittableRandom random, String link) {
+        int pools = 2 + random.nextInt(5);
+        out.imports("java.lang.ref.WeakReference", "java.util.ArrayList", "java.util.List", "java.util.Objects",
+                "java.util.concurrent.Callable");
+        out.open("public class " + out.name + " implements Callable<List<String>>");
+        out.line("private final Resource shared = new Resource(\"shared\");");
+        out.line("private final Object[][] pools = new Object[" + pools + "][];");
+        out.line("");
+        out.open("public " + out.name + "()");
+        for (int p = 0; p < pools; p++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    out.line("pools[" + p + "] = new Object[]{shared};");
+                    break;
+                case 1:
+                    out.line("pools[" + p + "] = new Object[]{new WeakReference<>(shared)};");
+                    break;
+                case 2:
+                    out.line("pools[" + p + "] = new Object[]{new WeakReference<>(new Resource(\"fresh" + p + "\"))};");
+                    break;
+                default:
+                    out.line("pools[" + p + "] = new Object[]{new Resource(\"shared\")};");
+            }
+        }
+        out.close();
+        out.line("");
+        out.line("@Override");
+        out.open("public List<String> call()");
+        out.line("List<String> messages = new ArrayList<>();");
+        out.line("Object candidate = unwrap(pools[(int) ((System.nanoTime() >>> 3) % pools.length)][0]);");
+        out.open("if (candidate == shared)");
+        out.line("messages.add(\"Alias resolved to shared instance\");");
+        out.close("} else if (candidate.equals(shared)) {", true);
+        out.line("messages.add(\"Indistinguishable but distinct object present\");");
+        out.close("} else {", true);
+        out.line("messages.add(\"Distinct: \" + " + (link != null ? link + ".touch(candidate.toString())" : "candidate") + ");");
+        out.close();
+        out.line("return messages;");
+        out.close();
+        out.line("");
+        out.open("private Object unwrap(Object value)");
+        out.open("if (value instanceof WeakReference)");
+        out.line("Object referent = ((WeakReference<?>) value).get();");
+        out.line("return referent != null ? referent : new Resource(\"resurrected\");");
+        out.close();
+        out.line("return value;");
+        out.close();
+        touch(out);
+        out.line("");
+        out.open("static class Resource");
+        out.line("private final String name;");
+        out.line("");
+        out.open("Resource(String name)");
+        out.line("this.name = name;");
+        out.close();
+        out.line("");
+        out.line("@Override");
+        out.open("public String toString()");
+        out.line("return \"Resource:\" + name;");
+        out.close();
+        out.line("");
+        out.line("@Override");
+        out.open("public int hashCode()");
+        out.line("return name.hashCode();");
+        out.close();
+        out.line("");
+        out.line("@Override");
+        out.open("public boolean equals(Object obj)");
+        out.line("return obj instanceof Resource && Objects.equals(name, ((Resource) obj).name);");
+        out.close();
+        out.close();
+        out.close();
+        return 2;
+    }
+
+    private static int unreachableGuard(Source out, SplittableRandom random, String link) {
+        int guards = 2 + random.nextInt(5);
+        out.imports("java.io.IOException", "java.util.ArrayList", "java.util.List", "java.util.concurrent.Callable");
+        out.open("public class " + out.name + " implements Callable<List<String>>");
+        out.line("@Override");
+        out.open("public List<String> call() throws IOException");
+        out.line("List<String> messages = new ArrayList<>();");
+        for (int g = 0; g < guards; g++) {
+            String condition;
+            switch (random.nextInt(4)) {
+                case 0:
+                    condition = "Boolean.getBoolean(\"secrux.synthetic.guard." + out.name + "." + g + "\")";
+                    break;
+                case 1:
+                    condition = "Math.random() < 0";
+                    break;
+                case 2:
+                    condition = "System.currentTimeMillis() == Long.MIN_VALUE";
+                    break;
+                default:
+                    condition = "Boolean.TRUE.equals(null)";
+            }
+            out.open("if (" + condition + ")");
+            out.line("sink(\"guard-" + g + "\");");
+            out.close("} else {", true);
+            out.line("messages.add(\"guard " + g + " held\");");
+            out.close();
+        }
+        if (link != null) {
+            out.line("messages.add(" + link + ".touch(\"guarded\"));");
+        }
+        out.line("return messages;");
+        out.close();
+        out.line("");
+        out.open("private static void sink(String command) throws IOException");
+        out.line("Runtime.getRuntime().exec(command);");
+        out.close();
+        touch(out);
+        out.close();
+        return 1;
+    }
+
+    /**
+     * Cheap static entry point other scenarios call into; it is what links the generated call graph together.
+     */
+    private static void touch(Source out) {
+        out.line("");
+        out.open("public static String touch(String value)");
+        out.line("return value + \"#" + out.name + "\";");
+        out.close();
+    }
+
+    private static String packageDriver(String pkg, List<String> names) {
+        Source out = new Source(pkg, "PackageDriver");
+        out.imports("java.util.List");
+        out.open("public final class PackageDriver");
+        out.open("private PackageDriver()");
+        out.close();
+        out.line("");
+        out.open("public static void run(List<String> messages) throws Exception");
+        for (String name : names) {
+            out.line("messages.addAll(new " + name + "().call());");
+        }
+        out.close();
+        out.close();
+        return out.toString();
+    }
+
+    private static String syntheticDriver(List<String> packageDrivers) {
+        Source out = new Source(BASE_PACKAGE, "SyntheticDriver");
+        out.imports("java.util.ArrayList", "java.util.List");
+        out.open("public final class SyntheticDriver");
+        out.open("private SyntheticDriver()");
+        out.close();
+        out.line("");
+        out.open("public static void main(String[] args) throws Exception");
+        out.line("int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 1;");
+        out.line("List<String> messages = new ArrayList<>();");
+        out.open("for (int round = 0; round < rounds; round++)");
+        for (String driver : packageDrivers) {
+            out.line(driver + ".run(messages);");
+        }
+        out.close();
+        out.line("System.out.println(\"[Synthetic] \" + messages.size() + \" messages\");");
+        out.close();
+        out.close();
+        return out.toString();
+    }
+
+    private static String className(int index) {
+        return KINDS[index % KINDS.length] + String.format("%05d", index);
+    }
+
+    private static String packageOf(int index) {
+        return BASE_PACKAGE + String.format(".p%03d", index / PER_PACKAGE);
+    }
+
+    private static String qualifiedName(int index) {
+        return packageOf(index) + "." + className(index);
+    }
+
+    private void write(String pkg, String name, String content) throws IOException {
+        Path file = sourceRoot.resolve(pkg.replace('.', '/')).resolve(name + ".java");
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Minimal indenting writer for one compilation unit.
+     */
+    private static final class Source {
+        private final StringBuilder text = new StringBuilder();
+        private final String name;
+        private int depth;
+
+        Source(String pkg, String name) {
+            this.name = name;
+            text.append("package ").append(pkg).append(";\n\n");
+        }
+
+        void imports(String... types) {
+            for (String type : types) {
+                text.append("import ").append(type).append(";\n");
+            }
+            text.append('\n');
+        }
+
+        void line(String code) {
+            if (!code.isEmpty()) {
+                for (int i = 0; i < depth; i++) {
+                    text.append("    ");
+                }
+                text.append(code);
+            }
+            text.append('\n');
+        }
+
+        void open(String header) {
+            open(header, " ");
+        }
+
+        void open(String header, String separator) {
+            line(header + separator + "{");
+            depth++;
+        }
+
+        void close() {
+            close("}");
+        }
+
+        void close(String closing) {
+            depth--;
+            line(closing);
+        }
+
+        /**
+         * Closes the current block and reopens at the same depth, for {@code } else {} chains.
+         */
+        void close(String closing, boolean reopen) {
+            close(closing);
+            if (reopen) {
+                depth++;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.secrux.threads;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * With {@code -Dsecrux.threads=virtual} (set by the {@code java21} Maven profile) Tomcat hands every request
+ * to a fresh virtual thread instead of its fixed worker pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "secrux.threads", havingValue = "virtual")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadExecutor() {
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    // Looked up reflectively so the default build keeps compiling for Java 8.
+    static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("secrux.threads=virtual requires Java 21 or newer", e);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to create the virtual thread executor", e);
+        }
+    }
+}
@@ -6,14 +6,15 @@ import java.util.function.Supplier;
 
 import org.springframework.stereotype.Service;
 
+import com.secrux.config.RuntimeConfig;
+
 /**
  * Hosts code paths that static analysis might mark as reachable even though runtime conditions block them.
  */
 @Service
 public class UnreachableTrap {
 
-    private final Supplier<Boolean> guard = () -> Boolean.getBoolean("secrux.enable");
-    private final ThreadLocal<String> weavingLog = ThreadLocal.withInitial(() -> "");
+    private final Supplier<Boolean> guard = () -> RuntimeConfig.current().enabled();
 
     public List<String> run() {
         List<String> messages = new ArrayList<>();
@@ -31,36 +32,34 @@ public class UnreachableTrap {
 
     private List<String> executeHeavyLogic() {
         List<String> events = new ArrayList<>();
-        if (System.getProperty("secrux.mode", "cold").equals("hot")) {
+        if (RuntimeConfig.current().mode().equals("hot")) {
             events.add("Hot path activated");
         }
         if (Boolean.TRUE.equals(null)) {
             // Impossible condition looks non-trivial to quick static checks.
             events.add("Null true branch");
         }
-        targetForWeaving();
-        String weavingMessage = weavingLog.get();
+        // The weaving target reports back through its return value instead of a thread-local log.
+        String weavingMessage = targetForWeaving();
         if (weavingMessage != null && !weavingMessage.isEmpty()) {
             events.add(weavingMessage);
         } else {
             events.add("targetForWeaving executed");
         }
-        weavingLog.remove();
         return events;
     }
 
-    public void targetForWeaving() {
+    public String targetForWeaving() {
         // Intended instrumentation target; runtime agent may weave bytecode here while static code stays unchanged.
         if (System.currentTimeMillis() == Long.MIN_VALUE) {
-            weavingLog.set("Temporal anomaly");
-            return;
+            return "Temporal anomaly";
         }
-        weavingLog.set("Instrumentation hook reached");
+        return "Instrumentation hook reached";
     }
 
     private String dormant() {
         Runnable unreachable = () -> {
-            if (Boolean.getBoolean("execute")) {
+            if (RuntimeConfig.current().execute()) {
                 System.out.println("This lambda should remain cold" + Math.random());
             }
         };